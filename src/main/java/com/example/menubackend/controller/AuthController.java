@@ -8,6 +8,8 @@ import com.example.menubackend.dto.UserLoginDTO;
 import com.example.menubackend.dto.UserRegisterDTO;
 import com.example.menubackend.repository.UserRepository;
 import com.example.menubackend.security.JwtTokenProvider;
+import com.example.menubackend.service.CarrinhoService;
+import com.example.menubackend.service.CarrinhoVisitanteService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -46,8 +49,12 @@ public class AuthController {
     @Autowired
     JwtTokenProvider tokenProvider;
 
+    @Autowired
+    CarrinhoService carrinhoService;
+
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody UserLoginDTO userLoginDTO) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody UserLoginDTO userLoginDTO,
+                                              @RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String carrinhoVisitante) {
 
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -60,7 +67,22 @@ public class AuthController {
 
         String jwt = tokenProvider.generateToken(authentication);
         logger.info("Token JWT gerado para o usuário {}: {}", userLoginDTO.getEmail(), (jwt != null && !jwt.isEmpty() ? "Token gerado com sucesso." : "TOKEN ESTÁ NULO OU VAZIO!"));
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt)); 
+
+        // Itens montados antes do login (carrinho de visitante) passam para o carrinho do usuário
+        if (carrinhoVisitante == null || carrinhoVisitante.isBlank()) {
+            return ResponseEntity.ok(new JwtAuthenticationResponse(jwt));
+        }
+        try {
+            userRepository.findByEmail(userLoginDTO.getEmail())
+                    .ifPresent(user -> carrinhoService.mesclarCarrinhoVisitante(user.getId(), carrinhoVisitante));
+        } catch (RuntimeException e) {
+            // O login não depende do carrinho de visitante
+            logger.warn("Carrinho de visitante não mesclado para {}: {}", userLoginDTO.getEmail(), e.getMessage());
+        }
+        // Cabeçalho vazio: o cliente descarta o token, que não deve ser enviado de novo
+        return ResponseEntity.ok()
+                .header(CarrinhoVisitanteService.CABECALHO, "")
+                .body(new JwtAuthenticationResponse(jwt));
     }
 
     @PostMapping("/signup")
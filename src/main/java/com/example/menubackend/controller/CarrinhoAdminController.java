@@ -0,0 +1,54 @@
+package com.example.menubackend.controller;
+
+import com.example.menubackend.payload.ApiResponse;
+import com.example.menubackend.service.CarrinhoExpiracaoService;
+import com.example.menubackend.service.CarrinhoMigracaoService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/carrinhos")
+@PreAuthorize("hasRole('ADMIN')")
+public class CarrinhoAdminController {
+
+    private final CarrinhoExpiracaoService carrinhoExpiracaoService;
+    private final CarrinhoMigracaoService carrinhoMigracaoService;
+
+    public CarrinhoAdminController(CarrinhoExpiracaoService carrinhoExpiracaoService,
+                                   CarrinhoMigracaoService carrinhoMigracaoService) {
+        this.carrinhoExpiracaoService = carrinhoExpiracaoService;
+        this.carrinhoMigracaoService = carrinhoMigracaoService;
+    }
+
+    /**
+     * Executa agora a limpeza de carrinhos abandonados (a mesma do agendamento) e informa quanto foi removido.
+     */
+    @PostMapping("/limpeza")
+    public ResponseEntity<?> limpar() {
+        try {
+            return ResponseEntity.ok(carrinhoExpiracaoService.limpar());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * Converte os carrinhos gravados para o layout de destino: COMPACTO (itens na linha do carrinho) ou
+     * LINHAS (uma linha de item_carrinho por item). Usado ao trocar app.carrinho.modo.
+     */
+    @PostMapping("/migracao")
+    public ResponseEntity<?> migrar(@RequestParam String destino) {
+        try {
+            return ResponseEntity.ok(carrinhoMigracaoService.migrar(CarrinhoMigracaoService.destino(destino)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.menubackend.controller;
 
+import com.example.menubackend.dto.CarrinhoLoteDTO;
 import com.example.menubackend.dto.CarrinhoResponseDTO;
 import com.example.menubackend.dto.ItemCarrinhoAddDTO;
 import com.example.menubackend.dto.ItemCarrinhoUpdateDTO;
+import com.example.menubackend.payload.ApiResponse;
+import com.example.menubackend.service.AlteracaoCarrinho;
 import com.example.menubackend.service.CarrinhoService;
+import com.example.menubackend.service.CarrinhoVisitanteService;
 import com.example.menubackend.repository.UserRepository;
 import com.example.menubackend.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,19 +69,21 @@ public class CarrinhoController {
      *
      * @param userDetails O UserDetails padrão injetado.
      * @param itemAddDTO O DTO contendo as informações do item a ser adicionado.
-     * @return ResponseEntity com o CarrinhoResponseDTO atualizado e status CREATED.
+     * @param versao A versão do carrinho que o cliente tem (opcional; pede a resposta em delta).
+     * @return ResponseEntity com o CarrinhoResponseDTO atualizado (ou o CarrinhoDeltaDTO) e status CREATED.
      */
     @PostMapping("/adicionar")
     @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
-    public ResponseEntity<CarrinhoResponseDTO> addItemToCarrinho( 
+    public ResponseEntity<?> addItemToCarrinho( 
                                                                   @AuthenticationPrincipal UserDetails userDetails,
-                                                                  @Valid @RequestBody ItemCarrinhoAddDTO itemAddDTO) {
+                                                                  @Valid @RequestBody ItemCarrinhoAddDTO itemAddDTO,
+                                                                  @RequestHeader(value = AlteracaoCarrinho.CABECALHO_VERSAO, required = false) Long versao) {
 
         User user = userRepository.findByEmail(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados para o email: " + userDetails.getUsername()));
         Long userId = user.getId();
-        CarrinhoResponseDTO carrinhoDTO = carrinhoService.addItemToCarrinho(userId, itemAddDTO); 
-        return new ResponseEntity<>(carrinhoDTO, HttpStatus.CREATED);
+        AlteracaoCarrinho alteracao = carrinhoService.addItemToCarrinho(userId, itemAddDTO, versao);
+        return new ResponseEntity<>(alteracao.resposta(versao), HttpStatus.CREATED);
     }
 
     /**
@@ -87,34 +93,102 @@ public class CarrinhoController {
      * @param userDetails O UserDetails padrão injetado.
      * @param itemId O ID do item no carrinho a ser atualizado.
      * @param updateDto O DTO contendo a nova quantidade.
-     * @return ResponseEntity com o CarrinhoResponseDTO atualizado e status OK.
+     * @param versao A versão do carrinho que o cliente tem (opcional; pede a resposta em delta).
+     * @return ResponseEntity com o CarrinhoResponseDTO atualizado (ou o CarrinhoDeltaDTO) e status OK.
      */
     @PutMapping("/atualizar/{itemId}") 
     @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
-    public ResponseEntity<CarrinhoResponseDTO> updateItemQuantity( 
+    public ResponseEntity<?> updateItemQuantity( 
                                                                    @AuthenticationPrincipal UserDetails userDetails,
                                                                    @PathVariable Long itemId, 
-                                                                   @Valid @RequestBody ItemCarrinhoUpdateDTO updateDto) { 
+                                                                   @Valid @RequestBody ItemCarrinhoUpdateDTO updateDto,
+                                                                   @RequestHeader(value = AlteracaoCarrinho.CABECALHO_VERSAO, required = false) Long versao) { 
 
         User user = userRepository.findByEmail(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados para o email: " + userDetails.getUsername()));
         Long userId = user.getId();
-        CarrinhoResponseDTO carrinhoDTO = carrinhoService.updateItemQuantity(userId, itemId, updateDto);
-        return ResponseEntity.ok(carrinhoDTO);
+        AlteracaoCarrinho alteracao = carrinhoService.updateItemQuantity(userId, itemId, updateDto);
+        return ResponseEntity.ok(alteracao.resposta(versao));
     }
 
+    /**
+     * Endpoint para aplicar várias alterações ao carrinho de uma vez (inclusões, atualizações e remoções).
+     * As operações são aplicadas na ordem recebida, todas ou nenhuma.
+     *
+     * @param userDetails O UserDetails padrão injetado.
+     * @param loteDto O DTO com a lista ordenada de operações.
+     * @param versao A versão do carrinho que o cliente tem (opcional; pede a resposta em delta).
+     * @return ResponseEntity com o CarrinhoResponseDTO final (ou o CarrinhoDeltaDTO), 400 com a operação que falhou ou 409 se o carrinho
+     *         continuou em disputa com outras requisições após as novas tentativas.
+     */
+    @PostMapping("/lote")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<?> aplicarOperacoes(@AuthenticationPrincipal UserDetails userDetails,
+                                              @RequestBody CarrinhoLoteDTO loteDto,
+                                              @RequestHeader(value = AlteracaoCarrinho.CABECALHO_VERSAO, required = false) Long versao) {
+
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados para o email: " + userDetails.getUsername()));
+        Long userId = user.getId();
+        try {
+            return ResponseEntity.ok(carrinhoService.aplicarOperacoes(userId, loteDto).resposta(versao));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * Endpoint para mesclar um carrinho de visitante (cabeçalho X-Carrinho-Visitante) ao carrinho do usuário logado,
+     * para clientes que já estavam logados ou não o enviaram no login.
+     *
+     * @param userDetails O UserDetails padrão injetado.
+     * @param token O token do carrinho de visitante.
+     * @return ResponseEntity com o CarrinhoResponseDTO resultante ou 400 se o token for inválido ou estiver expirado.
+     */
+    @PostMapping("/mesclar")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<?> mesclarCarrinhoVisitante(@AuthenticationPrincipal UserDetails userDetails,
+                                                      @RequestHeader(CarrinhoVisitanteService.CABECALHO) String token) {
+
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados para o email: " + userDetails.getUsername()));
+        Long userId = user.getId();
+        try {
+            return ResponseEntity.ok()
+                    .header(CarrinhoVisitanteService.CABECALHO, "") // O cliente descarta o token já mesclado
+                    .body(carrinhoService.mesclarCarrinhoVisitante(userId, token));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
 
+    /**
+     * Endpoint para remover um item do carrinho do usuário logado.
+     *
+     * @param userDetails O UserDetails padrão injetado.
+     * @param itemId O ID do item no carrinho a ser removido.
+     * @param versao A versão do carrinho que o cliente tem (opcional).
+     * @return 204 sem corpo; se a versão for informada, 200 com o CarrinhoDeltaDTO (ou o carrinho completo).
+     */
     @DeleteMapping("/remover/{itemId}")
     @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
-    public ResponseEntity<Void> removeItemFromCarrinho( 
+    public ResponseEntity<?> removeItemFromCarrinho( 
                                                         @AuthenticationPrincipal UserDetails userDetails,
-                                                        @PathVariable Long itemId) {
+                                                        @PathVariable Long itemId,
+                                                        @RequestHeader(value = AlteracaoCarrinho.CABECALHO_VERSAO, required = false) Long versao) {
 
         User user = userRepository.findByEmail(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados para o email: " + userDetails.getUsername()));
         Long userId = user.getId();
-        CarrinhoResponseDTO carrinhoDTO = carrinhoService.removeItemFromCarrinho(userId, itemId); 
-        return ResponseEntity.noContent().build();
+        AlteracaoCarrinho alteracao = carrinhoService.removeItemFromCarrinho(userId, itemId); 
+        if (versao == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(alteracao.resposta(versao));
     }
     
 
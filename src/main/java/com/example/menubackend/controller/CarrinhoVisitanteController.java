@@ -0,0 +1,75 @@
+package com.example.menubackend.controller;
+
+import com.example.menubackend.dto.CarrinhoLoteDTO;
+import com.example.menubackend.dto.ItemCarrinhoAddDTO;
+import com.example.menubackend.dto.ItemCarrinhoUpdateDTO;
+import com.example.menubackend.payload.ApiResponse;
+import com.example.menubackend.service.CarrinhoService;
+import com.example.menubackend.service.CarrinhoVisitanteService;
+import com.example.menubackend.service.CarrinhoVisitanteService.CarrinhoVisitante;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.function.Supplier;
+
+/**
+ * Carrinho de quem ainda não fez login. Nada é gravado no servidor: o carrinho vai e volta no cabeçalho
+ * X-Carrinho-Visitante, e cada resposta traz no mesmo cabeçalho o token atualizado, que o cliente deve guardar
+ * e enviar no login (POST /api/auth/signin) para mesclar os itens ao carrinho do usuário.
+ * O corpo das respostas tem o mesmo formato do carrinho do usuário, sem id e sem usuário.
+ */
+@RestController
+@RequestMapping("/api/carrinho/visitante")
+public class CarrinhoVisitanteController {
+
+    private final CarrinhoVisitanteService carrinhoVisitanteService;
+    private final CarrinhoService carrinhoService;
+
+    public CarrinhoVisitanteController(CarrinhoVisitanteService carrinhoVisitanteService, CarrinhoService carrinhoService) {
+        this.carrinhoVisitanteService = carrinhoVisitanteService;
+        this.carrinhoService = carrinhoService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getCarrinho(@RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String token) {
+        return responder(() -> carrinhoVisitanteService.obter(token));
+    }
+
+    @PostMapping("/adicionar")
+    public ResponseEntity<?> addItem(@RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String token,
+                                     @Valid @RequestBody ItemCarrinhoAddDTO itemAddDTO) {
+        return responder(() -> carrinhoVisitanteService.adicionar(token, itemAddDTO.getProdutoId(), itemAddDTO.getQuantidade()));
+    }
+
+    @PutMapping("/atualizar/{itemId}")
+    public ResponseEntity<?> updateItemQuantity(@RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String token,
+                                                @PathVariable Long itemId,
+                                                @Valid @RequestBody ItemCarrinhoUpdateDTO updateDto) {
+        return responder(() -> carrinhoVisitanteService.atualizar(token, itemId, updateDto.getQuantidade()));
+    }
+
+    @DeleteMapping("/remover/{itemId}")
+    public ResponseEntity<?> removeItem(@RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String token,
+                                        @PathVariable Long itemId) {
+        return responder(() -> carrinhoVisitanteService.remover(token, itemId));
+    }
+
+    @PostMapping("/lote")
+    public ResponseEntity<?> aplicarOperacoes(@RequestHeader(value = CarrinhoVisitanteService.CABECALHO, required = false) String token,
+                                              @RequestBody CarrinhoLoteDTO loteDto) {
+        return responder(() -> carrinhoService.aplicarOperacoesVisitante(token, loteDto));
+    }
+
+    // Token inválido ou expirado, produto indisponível ou item inexistente: 400 com a mensagem
+    private ResponseEntity<?> responder(Supplier<CarrinhoVisitante> operacao) {
+        try {
+            CarrinhoVisitante carrinho = operacao.get();
+            return ResponseEntity.ok()
+                    .header(CarrinhoVisitanteService.CABECALHO, carrinho.token())
+                    .body(carrinho.carrinho());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package com.example.menubackend.controller;
 
+import com.example.menubackend.dto.FilaCozinhaDTO;
+import com.example.menubackend.dto.FinalizacaoPedidoDTO;
+import com.example.menubackend.dto.PaginaDTO;
 import com.example.menubackend.dto.PedidoRequestDTO; 
 import com.example.menubackend.dto.PedidoResponseDTO;
 import com.example.menubackend.model.StatusPedido;
 import com.example.menubackend.model.User;
+import com.example.menubackend.payload.ApiResponse;
 import com.example.menubackend.repository.UserRepository;
+import com.example.menubackend.service.FinalizacaoPedidoService;
+import com.example.menubackend.service.CatalogoImportExportService.Formato;
+import com.example.menubackend.service.CozinhaService;
+import com.example.menubackend.service.IdempotenciaPedidoService;
+import com.example.menubackend.service.PedidoExportacaoService;
 import com.example.menubackend.service.PedidoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -28,32 +46,191 @@ public class PedidoController {
     @Autowired
     private UserRepository userRepository; 
 
+    @Autowired
+    private FinalizacaoPedidoService finalizacaoPedidoService;
+
+    @Autowired
+    private PedidoExportacaoService pedidoExportacaoService;
+
+    @Autowired
+    private CozinhaService cozinhaService;
+
     /**
-     * Endpoint para o ADMIN visualizar TODOS os pedidos da plataforma.
-     * Requer autenticação e role de ADMIN.
+     * Endpoint antigo do ADMIN para visualizar os pedidos. Não devolve mais todos os pedidos da plataforma: responde
+     * apenas a primeira página de GET /api/pedidos/pagina (os mais recentes, tamanho padrão), com o cabeçalho Link
+     * (rel="next") apontando para a página seguinte quando houver.
+     * @deprecated use GET /api/pedidos/pagina
      */
+    @Deprecated
     @GetMapping // Mapeia para GET /api/pedidos
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<PedidoResponseDTO>> getAllPedidosForAdmin() {
-        List<PedidoResponseDTO> pedidos = pedidoService.getAllPedidos(); 
-        return ResponseEntity.ok(pedidos);
+        PaginaDTO<PedidoResponseDTO> pagina = pedidoService.listarPagina(null, null, null, null, null, null);
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok().header("Deprecation", "true");
+        if (pagina.getProximoCursor() != null) {
+            resposta.header(HttpHeaders.LINK, "</api/pedidos/pagina?cursor=" + pagina.getProximoCursor() + ">; rel=\"next\"");
+        }
+        return resposta.body(pagina.getItens());
+    }
+
+    /**
+     * Endpoint para o ADMIN listar os pedidos paginados por cursor, do mais recente para o mais antigo,
+     * com filtros opcionais de status, período (de inclusive, ate exclusive, data e hora ISO) e usuário.
+     * Use o proximoCursor da resposta para buscar a página seguinte.
+     */
+    @GetMapping("/pagina")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getPaginaPedidosForAdmin(@RequestParam(required = false) StatusPedido status,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate,
+                                                      @RequestParam(required = false) Long userId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer tamanho) {
+        try {
+            return ResponseEntity.ok(pedidoService.listarPagina(status, de, ate, userId, cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            // Cursor malformado ou adulterado
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * Endpoint para o ADMIN exportar todos os pedidos com seus itens em NDJSON (padrão, um pedido por linha)
+     * ou CSV (uma linha por item), com filtros opcionais de status e período. As linhas são escritas conforme
+     * são lidas do banco.
+     */
+    @GetMapping("/exportar")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportarPedidos(@RequestParam(defaultValue = "ndjson") String formato,
+                                @RequestParam(required = false) StatusPedido status,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate,
+                                HttpServletResponse response) throws IOException {
+        Formato formatoExportacao = "csv".equalsIgnoreCase(formato) ? Formato.CSV : Formato.NDJSON;
+        response.setContentType(formatoExportacao == Formato.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"pedidos." + formatoExportacao.name().toLowerCase() + "\"");
+        pedidoExportacaoService.exportar(response.getOutputStream(), formatoExportacao, status, de, ate);
+    }
+
+    /**
+     * Fila da cozinha: pedidos ativos (PENDENTE), do mais antigo para o mais novo, servidos da memória.
+     */
+    @GetMapping("/cozinha")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FilaCozinhaDTO> getFilaCozinha() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(cozinhaService.getFila());
+    }
+
+    /**
+     * Fluxo de Server-Sent Events para as telas da cozinha, em vez de consultar /api/pedidos periodicamente.
+     * Na conexão (e em cada reconexão) é enviado um evento "fila" com os pedidos ativos; depois, um evento
+     * "pedido" por pedido criado ou alterado, com o pedido completo (status diferente de PENDENTE: sai da fila).
+     */
+    @GetMapping(value = "/cozinha/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SseEmitter> eventosCozinha() {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .header("X-Accel-Buffering", "no") // Evita que proxies reversos segurem os eventos em buffer
+                    .body(cozinhaService.inscrever());
+        } catch (IllegalStateException e) {
+            // Limite de conexões atingido: o cliente tenta de novo
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
     /**
      * Endpoint para finalizar um pedido a partir do carrinho do usuário logado.
      * Requer autenticação e role de CLIENTE.
+     * Com a finalização assíncrona ativa, responde 202 com a referência a consultar em
+     * /api/pedidos/finalizacao/{referencia} (cabeçalho Location), ou 503 se a fila estiver cheia.
+     * Com o cabeçalho Idempotency-Key, repetir a requisição com a mesma chave devolve o pedido já criado por ela.
      */
     @PostMapping("/finalizar")
     @PreAuthorize("hasRole('CLIENTE')")
-    public ResponseEntity<PedidoResponseDTO> finalizarPedido(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> finalizarPedido(@AuthenticationPrincipal UserDetails userDetails,
+                                             @RequestHeader(value = IdempotenciaPedidoService.CABECALHO, required = false) String chave) {
         User user = userRepository.findByEmail(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado."));
         Long userId = user.getId();
 
-        PedidoResponseDTO pedidoFinalizado = pedidoService.finalizarPedido(userId);
+        try {
+            chave = IdempotenciaPedidoService.validar(chave);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+
+        if (finalizacaoPedidoService.isAtivo()) {
+            try {
+                FinalizacaoPedidoDTO finalizacao = finalizacaoPedidoService.enfileirar(userId, chave);
+                if (FinalizacaoPedidoService.Situacao.CONCLUIDA.name().equals(finalizacao.getSituacao())
+                        || FinalizacaoPedidoService.Situacao.FALHOU.name().equals(finalizacao.getSituacao())) {
+                    return ResponseEntity.ok(finalizacao); // Repetição de uma chave já processada
+                }
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/pedidos/finalizacao/" + finalizacao.getReferencia()))
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(finalizacao);
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body(new ApiResponse(false, e.getMessage()));
+            }
+        }
+
+        PedidoResponseDTO pedidoFinalizado = pedidoService.finalizarPedido(userId, chave);
         return ResponseEntity.ok(pedidoFinalizado);
     }
 
+    /**
+     * Endpoint para acompanhar uma finalização assíncrona: NA_FILA ou PROCESSANDO (consulte de novo após o
+     * Retry-After), CONCLUIDA com o pedido ou FALHOU com o motivo. 404 se a referência não existe, já expirou
+     * ou é de outro usuário.
+     */
+    @GetMapping("/finalizacao/{referencia}")
+    @PreAuthorize("hasRole('CLIENTE')")
+    public ResponseEntity<?> consultarFinalizacao(@AuthenticationPrincipal UserDetails userDetails,
+                                                  @PathVariable String referencia) {
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado."));
+        Long userId = user.getId();
+
+        return finalizacaoPedidoService.consultar(referencia, userId)
+                .<ResponseEntity<?>>map(finalizacao -> {
+                    boolean concluida = FinalizacaoPedidoService.Situacao.CONCLUIDA.name().equals(finalizacao.getSituacao())
+                            || FinalizacaoPedidoService.Situacao.FALHOU.name().equals(finalizacao.getSituacao());
+                    return !concluida
+                            ? ResponseEntity.ok().header(HttpHeaders.RETRY_AFTER, "1").body(finalizacao)
+                            : ResponseEntity.ok(finalizacao);
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse(false, "Finalização não encontrada: " + referencia)));
+    }
+
+    /**
+     * Endpoint para criar um pedido direto com os itens informados (quiosque, balcão), sem passar pelo carrinho.
+     * Acessível por CLIENTE ou ADMIN.
+     */
+    @PostMapping("/rapido")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<?> criarPedidoRapido(@AuthenticationPrincipal UserDetails userDetails,
+                                               @RequestBody PedidoRequestDTO pedidoRequest) {
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado."));
+        Long userId = user.getId();
+
+        try {
+            return new ResponseEntity<>(pedidoService.criarPedidoRapido(userId, pedidoRequest), HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            // Item inválido, produto inexistente ou indisponível, ou preço diferente do atual
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     /**
      * Endpoint para o cliente visualizar seus próprios pedidos.
      * Acessível por CLIENTE ou ADMIN.
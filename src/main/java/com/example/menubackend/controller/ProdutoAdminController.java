@@ -0,0 +1,129 @@
+package com.example.menubackend.controller;
+
+import com.example.menubackend.dto.DisponibilidadeLoteDTO;
+import com.example.menubackend.dto.ImportacaoResultadoDTO;
+import com.example.menubackend.dto.PrecoLoteDTO;
+import com.example.menubackend.payload.ApiResponse;
+import com.example.menubackend.repository.ProdutoRepository;
+import com.example.menubackend.service.CatalogoImportExportService;
+import com.example.menubackend.service.CatalogoImportExportService.Formato;
+import com.example.menubackend.service.ImagemProdutoService;
+import com.example.menubackend.service.ImagemProdutoService.Variante;
+import com.example.menubackend.service.ProdutoService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/admin/produtos")
+@PreAuthorize("hasRole('ADMIN')")
+public class ProdutoAdminController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final CatalogoImportExportService catalogoImportExportService;
+    private final ImagemProdutoService imagemProdutoService;
+    private final ProdutoRepository produtoRepository;
+    private final ProdutoService produtoService;
+
+    public ProdutoAdminController(CatalogoImportExportService catalogoImportExportService,
+                                  ImagemProdutoService imagemProdutoService, ProdutoRepository produtoRepository,
+                                  ProdutoService produtoService) {
+        this.catalogoImportExportService = catalogoImportExportService;
+        this.imagemProdutoService = imagemProdutoService;
+        this.produtoRepository = produtoRepository;
+        this.produtoService = produtoService;
+    }
+
+    /**
+     * Importa (insere ou atualiza) produtos em lote a partir de NDJSON ou CSV.
+     * O corpo é lido em streaming; linhas inválidas são reportadas sem interromper a importação.
+     */
+    @PostMapping(value = "/importar", consumes = {NDJSON, CSV})
+    public ResponseEntity<?> importar(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                      InputStream corpo) throws IOException {
+        Formato formato = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? Formato.CSV : Formato.NDJSON;
+        try {
+            ImportacaoResultadoDTO resultado = catalogoImportExportService.importar(corpo, formato);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            // Cabeçalho CSV inválido
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporta todo o catálogo em NDJSON (padrão) ou CSV, escrevendo as linhas conforme são lidas do banco.
+     */
+    @GetMapping("/exportar")
+    public void exportar(@RequestParam(defaultValue = "ndjson") String formato, HttpServletResponse response) throws IOException {
+        Formato formatoExportacao = "csv".equalsIgnoreCase(formato) ? Formato.CSV : Formato.NDJSON;
+        response.setContentType(formatoExportacao == Formato.CSV ? CSV + ";charset=UTF-8" : NDJSON);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"produtos." + formatoExportacao.name().toLowerCase() + "\"");
+        catalogoImportExportService.exportar(response.getOutputStream(), formatoExportacao);
+    }
+
+    /**
+     * Recebe a imagem de um produto (multipart, campo "arquivo") e a armazena localmente.
+     * As variantes são geradas em segundo plano; o produto passa a exibi-las assim que ficarem prontas.
+     */
+    @PostMapping(value = "/{id}/imagem", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> enviarImagem(@PathVariable Long id, @RequestParam("arquivo") MultipartFile arquivo) throws IOException {
+        if (!produtoRepository.existsById(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse(false, "Produto não encontrado com ID: " + id));
+        }
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            long versao = imagemProdutoService.receber(id, conteudo);
+            Map<String, Object> resposta = new LinkedHashMap<>();
+            resposta.put("versao", versao);
+            for (Variante variante : Variante.values()) {
+                resposta.put(variante.parametro(), ImagemProdutoService.url(id, versao, variante));
+            }
+            return ResponseEntity.accepted().body(resposta);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponse(false, "Fila de processamento de imagens cheia. Tente novamente em instantes."));
+        }
+    }
+
+    /**
+     * Ativa ou desativa vários produtos de uma vez, por lista de IDs ou por categoria.
+     * Ex.: {"categoria": "LANCHE", "disponibilidade": false} quando acabar o pão.
+     */
+    @PostMapping("/lote/disponibilidade")
+    public ResponseEntity<?> alterarDisponibilidade(@RequestBody DisponibilidadeLoteDTO alteracao) {
+        try {
+            return ResponseEntity.ok(produtoService.alterarDisponibilidadeEmLote(alteracao));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * Altera o preço de vários produtos de uma vez: valor absoluto ("preco") ou reajuste percentual ("percentual").
+     */
+    @PostMapping("/lote/preco")
+    public ResponseEntity<?> alterarPreco(@RequestBody PrecoLoteDTO alteracao) {
+        try {
+            return ResponseEntity.ok(produtoService.alterarPrecoEmLote(alteracao));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
@@ -2,43 +2,238 @@ package com.example.menubackend.controller;
 
 import com.example.menubackend.model.Produto;
 import com.example.menubackend.repository.ProdutoRepository;
+import com.example.menubackend.dto.AlteracaoCardapioDTO;
+import com.example.menubackend.dto.PaginaDTO;
 import com.example.menubackend.dto.ProdutoDTO; 
+import com.example.menubackend.dto.ProdutoResumo;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.service.CardapioEventosService;
+import com.example.menubackend.service.CardapioPayload;
+import com.example.menubackend.service.CardapioSnapshotService;
+import com.example.menubackend.service.ImagemProdutoService;
+import com.example.menubackend.service.ImagemProdutoService.Variante;
+import com.example.menubackend.service.ProdutoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api/produtos")
 @CrossOrigin(origins = "*")
 public class ProdutoController {
 
     private final ProdutoRepository produtoRepository;
+    private final CardapioSnapshotService cardapioSnapshotService;
+    private final ProdutoService produtoService;
+    private final ImagemProdutoService imagemProdutoService;
+    private final CardapioEventosService cardapioEventosService;
+
+    // Abaixo deste tamanho o sendfile não compensa; o Tomcat usa o mesmo limite para arquivos estáticos
+    private static final long LIMITE_SENDFILE = 48 * 1024;
 
-    public ProdutoController(ProdutoRepository produtoRepository) {
+    public ProdutoController(ProdutoRepository produtoRepository, CardapioSnapshotService cardapioSnapshotService,
+                             ProdutoService produtoService, ImagemProdutoService imagemProdutoService,
+                             CardapioEventosService cardapioEventosService) {
         this.produtoRepository = produtoRepository;
+        this.cardapioSnapshotService = cardapioSnapshotService;
+        this.produtoService = produtoService;
+        this.imagemProdutoService = imagemProdutoService;
+        this.cardapioEventosService = cardapioEventosService;
     }
 
 
+    // Leituras servidas pelo snapshot em memória, com o JSON já serializado, sem ida ao banco
     @GetMapping 
-    public ResponseEntity<List<ProdutoDTO>> findAll() {
-        List<Produto> produtos = produtoRepository.findAll();
-        List<ProdutoDTO> produtoDTOs = produtos.stream()
-                .map(this::convertToProdutoDTO) 
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(produtoDTOs);
+    public ResponseEntity<byte[]> findAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responderPayload(cardapioSnapshotService.getSnapshot().getPayloadProdutos(), ifNoneMatch, acceptEncoding);
+    }
+
+    @GetMapping("/ativos")
+    public ResponseEntity<byte[]> findAtivos(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responderPayload(cardapioSnapshotService.getSnapshot().getPayloadAtivos(), ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * Cardápio de produtos disponíveis agrupado por categoria, pronto para renderizar.
+     * O agrupamento é calculado uma vez por versão do cardápio e enviado já serializado.
+     */
+    @GetMapping("/cardapio")
+    public ResponseEntity<byte[]> findCardapio(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responderPayload(cardapioSnapshotService.getSnapshot().getPayloadAgrupado(), ifNoneMatch, acceptEncoding);
+    }
+
+    // Uma única categoria do cardápio agrupado
+    @GetMapping("/cardapio/{categoria}")
+    public ResponseEntity<byte[]> findCardapioCategoria(@PathVariable Categoria categoria,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responderPayload(cardapioSnapshotService.getSnapshot().getPayloadCategoria(categoria), ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * Fluxo de Server-Sent Events com as alterações do cardápio (disponibilidade, preço, inclusões e remoções).
+     * Na conexão é enviado um evento "versao"; depois, um evento "cardapio" por nova versão.
+     * Ao reconectar, o EventSource envia Last-Event-ID e recebe de uma vez o que perdeu enquanto esteve fora.
+     */
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> eventos(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long versaoCliente = null;
+        if (lastEventId != null) {
+            try {
+                versaoCliente = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Id desconhecido: trata como conexão nova
+            }
+        }
+        Long desde = versaoCliente;
+        try {
+            SseEmitter emissor = cardapioEventosService.inscrever(() -> cardapioSnapshotService.alteracoesDesde(
+                    desde != null ? desde : cardapioSnapshotService.getSnapshot().getVersao()));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .header("X-Accel-Buffering", "no") // Evita que proxies reversos segurem os eventos em buffer
+                    .body(emissor);
+        } catch (IllegalStateException e) {
+            // Limite de conexões atingido: o EventSource do cliente tenta de novo sozinho
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Sincronização incremental: produtos adicionados, alterados e removidos desde a versão que o cliente tem.
+     * Se essa versão for antiga demais, a resposta vem com completo = true e o cardápio inteiro em "adicionados".
+     */
+    @GetMapping("/alteracoes")
+    public ResponseEntity<AlteracaoCardapioDTO> alteracoes(@RequestParam long desde) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(cardapioSnapshotService.alteracoesDesde(desde));
+    }
+
+    /**
+     * Listagem paginada por cursor, para catálogos grandes.
+     * Use o proximoCursor da resposta para buscar a página seguinte.
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaDTO<ProdutoResumo>> findPagina(@RequestParam(required = false) Categoria categoria,
+                                                               @RequestParam(required = false) Boolean disponivel,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer tamanho) {
+        try {
+            return ResponseEntity.ok(produtoService.listarPagina(categoria, disponivel, cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            // Cursor malformado ou adulterado
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Busca textual por nome e descrição, ordenada por relevância.
+     * Ignora acentos e tolera pequenos erros de digitação; não consulta o banco.
+     */
+    @GetMapping("/busca")
+    public ResponseEntity<List<ProdutoDTO>> buscar(@RequestParam String q,
+                                                   @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(produtoService.buscarProdutos(q, Math.min(Math.max(limite, 1), 50)));
+    }
+
+    // Autocomplete da caixa de busca: nomes de produtos a partir do texto digitado
+    @GetMapping("/sugestoes")
+    public ResponseEntity<List<String>> sugerir(@RequestParam String q,
+                                                @RequestParam(defaultValue = "8") int limite) {
+        return ResponseEntity.ok(produtoService.sugerirNomes(q, Math.min(Math.max(limite, 1), 20)));
     }
 
     @GetMapping("/{id}") 
     public ResponseEntity<ProdutoDTO> findById(@PathVariable long id) {
-        return produtoRepository.findById(id)
-                .map(this::convertToProdutoDTO) 
+        return produtoService.getProdutoById(id)
                 .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build()); 
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Imagem local do produto (variante "miniatura" ou "media"), enviada direto do arquivo para o socket.
+     * Requisições com a versão atual em "v" podem ser guardadas em cache indefinidamente pelo cliente.
+     */
+    @GetMapping("/{id}/imagem")
+    public void imagem(@PathVariable Long id,
+                       @RequestParam(defaultValue = "media") String variante,
+                       @RequestParam(required = false) Long v,
+                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Variante tipo;
+        try {
+            tipo = Variante.valueOf(variante.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Variante inválida: " + variante);
+            return;
+        }
+
+        ProdutoDTO produto = cardapioSnapshotService.getSnapshot().getProduto(id);
+        if (produto == null || produto.getImagemVersao() == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        long versao = produto.getImagemVersao();
+        Path arquivo = imagemProdutoService.arquivo(id, versao, tipo);
+        if (!Files.isRegularFile(arquivo)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String etag = "\"" + versao + "-" + tipo.parametro() + "\"";
+        // URL com a versão atual nunca muda de conteúdo; sem versão (ou com uma antiga) o cliente deve revalidar
+        CacheControl cache = Long.valueOf(versao).equals(v)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cache.getHeaderValue());
+        if (etag.equals(ifNoneMatch)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long tamanho = Files.size(arquivo);
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        response.setContentLengthLong(tamanho);
+
+        // Com sendfile o Tomcat copia o arquivo para o socket no kernel, sem passar pela heap
+        if (tamanho >= LIMITE_SENDFILE && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", arquivo.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", tamanho);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(response.getOutputStream());
+            long posicao = 0;
+            while (posicao < tamanho) {
+                posicao += canal.transferTo(posicao, tamanho - posicao, destino);
+            }
+        }
     }
 
 
@@ -52,6 +247,7 @@ public class ProdutoController {
         }
         Produto produto = convertToProdutoEntity(produtoDTO); 
         Produto savedProduto = produtoRepository.save(produto);
+        cardapioSnapshotService.produtoAlterado(savedProduto.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToProdutoDTO(savedProduto));
     }
 
@@ -73,6 +269,7 @@ public class ProdutoController {
                     produtoExistente.setImagem(produtoDTO.getImagem());
 
                     Produto updatedProduto = produtoRepository.save(produtoExistente);
+                    cardapioSnapshotService.produtoAlterado(id);
                     return ResponseEntity.ok(convertToProdutoDTO(updatedProduto));
                 })
                 .orElse(ResponseEntity.notFound().build()); 
@@ -80,9 +277,51 @@ public class ProdutoController {
 
     @DeleteMapping("/{id}") 
     @PreAuthorize("hasRole('ADMIN')") 
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        produtoRepository.deleteById(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id) {
+        if (cardapioSnapshotService.getSnapshot().getProduto(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // O serviço remove as imagens locais depois do commit da exclusão
+        produtoService.deleteProduto(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Responde 304 se o cliente já tem a versão atual; senão envia os bytes prontos (gzip quando aceito)
+    private ResponseEntity<byte[]> responderPayload(CardapioPayload payload, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = aceitaGzip(acceptEncoding);
+        String etag = gzip ? payload.getEtagGzip() : payload.getEtag();
+
+        if (payload.correspondeA(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noCache());
+        if (gzip) {
+            return resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getJsonGzip());
+        }
+        return resposta.body(payload.getJson());
+    }
+
+    private boolean aceitaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacao : acceptEncoding.split(",")) {
+            String[] partes = codificacao.trim().split(";");
+            if (partes[0].trim().equalsIgnoreCase("gzip")) {
+                // "gzip;q=0" significa que o cliente recusa gzip
+                return partes.length < 2 || !partes[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     private ProdutoDTO convertToProdutoDTO(Produto produto) {
@@ -94,6 +333,7 @@ public class ProdutoController {
         dto.setCategoria(produto.getCategoria());
         dto.setDisponibilidade(produto.getDisponibilidade());
         dto.setImagem(produto.getImagem());
+        ImagemProdutoService.preencherUrls(dto, produto.getImagemVersao());
         return dto;
     }
 
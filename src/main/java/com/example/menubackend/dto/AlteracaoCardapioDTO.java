@@ -0,0 +1,20 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracaoCardapioDTO {
+    private long versao; // Versão do cardápio após a alteração
+    private Long desde; // Versão a partir da qual as alterações foram calculadas
+    private boolean completo; // true: "adicionados" traz o cardápio inteiro e o cliente deve descartar o que tem em cache
+    private List<ProdutoDTO> adicionados = new ArrayList<>();
+    private List<ProdutoDTO> alterados = new ArrayList<>(); // Estado completo dos produtos alterados (preço, disponibilidade etc.)
+    private List<Long> removidos = new ArrayList<>();
+}
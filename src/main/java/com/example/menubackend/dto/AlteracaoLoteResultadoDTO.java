@@ -0,0 +1,13 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracaoLoteResultadoDTO {
+    private int produtosAlterados;
+    private long versao; // Versão do cardápio após a alteração
+}
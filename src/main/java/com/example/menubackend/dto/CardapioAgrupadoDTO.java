@@ -0,0 +1,15 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardapioAgrupadoDTO {
+    private long versao; // Versão do cardápio que originou o agrupamento
+    private List<CategoriaCardapioDTO> categorias; // Apenas categorias com produtos, na ordem da enum Categoria
+}
@@ -0,0 +1,18 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Dinheiro;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Resposta parcial de uma alteração do carrinho, para o cliente que informou a versão que tem (X-Carrinho-Versao):
+ * só as linhas que mudaram, o novo total e a nova versão.
+ */
+@Data
+public class CarrinhoDeltaDTO {
+    private Long versaoAnterior; // Versão sobre a qual o delta se aplica (a que o cliente informou)
+    private Long versao;
+    private List<ItemCarrinhoResponseDTO> itensAlterados; // Linhas novas completas; nas demais, sem nome e imagem
+    private List<Long> itensRemovidos; // IDs dos itens que saíram do carrinho
+    private Dinheiro valorTotal;
+}
@@ -0,0 +1,11 @@
+package com.example.menubackend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Operações aplicadas ao carrinho na ordem em que aparecem, todas ou nenhuma
+@Data
+public class CarrinhoLoteDTO {
+    private List<OperacaoCarrinhoDTO> operacoes;
+}
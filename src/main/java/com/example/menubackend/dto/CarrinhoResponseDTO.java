@@ -1,7 +1,7 @@
 package com.example.menubackend.dto;
 
+import com.example.menubackend.model.Dinheiro;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -10,5 +10,6 @@ public class CarrinhoResponseDTO {
     private String userName; //
     private Long userId; // ID do usuário do carrinho
     private List<ItemCarrinhoResponseDTO> itens;
-    private BigDecimal valorTotal; // Soma dos subtotais dos itens
+    private Dinheiro valorTotal; // Soma dos subtotais dos itens
+    private Long versao; // Avança a cada alteração do carrinho; nulo no carrinho de visitante
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoriaCardapioDTO {
+    private Categoria categoria;
+    private int quantidade; // Quantidade de produtos disponíveis na categoria
+    private Dinheiro precoMinimo; // null quando a categoria está vazia
+    private Dinheiro precoMaximo;
+    private List<ProdutoDTO> produtos;
+}
@@ -0,0 +1,14 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Categoria;
+import lombok.Data;
+
+import java.util.List;
+
+// Informe "ids" ou "categoria" para selecionar os produtos
+@Data
+public class DisponibilidadeLoteDTO {
+    private List<Long> ids;
+    private Categoria categoria;
+    private Boolean disponibilidade;
+}
@@ -0,0 +1,13 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacaoDTO {
+    private long linha; // Número da linha no arquivo enviado (começando em 1)
+    private String mensagem;
+}
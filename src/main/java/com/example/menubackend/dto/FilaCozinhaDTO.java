@@ -0,0 +1,15 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaCozinhaDTO {
+    private long versao; // Eventos "pedido" com id maior que esta versão são posteriores à fila
+    private List<PedidoResponseDTO> pedidos; // Pedidos ativos, do mais antigo para o mais novo
+}
@@ -0,0 +1,15 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FinalizacaoPedidoDTO {
+    private String referencia; // Usada para consultar o andamento em /api/pedidos/finalizacao/{referencia}
+    private String situacao; // NA_FILA, PROCESSANDO, CONCLUIDA ou FALHOU
+    private PedidoResponseDTO pedido; // Preenchido quando CONCLUIDA
+    private String mensagem; // Motivo, quando FALHOU
+}
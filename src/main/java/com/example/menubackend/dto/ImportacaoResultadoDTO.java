@@ -0,0 +1,14 @@
+package com.example.menubackend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportacaoResultadoDTO {
+    private long linhasLidas;
+    private long importados; // Produtos inseridos ou atualizados
+    private long comErro;
+    private List<ErroImportacaoDTO> erros = new ArrayList<>(); // Limitado para não crescer sem controle em arquivos ruins
+}
@@ -1,15 +1,17 @@
 package com.example.menubackend.dto;
 
+import com.example.menubackend.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
-import java.math.BigDecimal;
 
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL) // No delta do carrinho, linhas já conhecidas vão sem nome e imagem
 public class ItemCarrinhoResponseDTO {
     private Long id; // ID do ItemCarrinho
     private Long produtoId; // ID do Produto
     private String nomeProduto; // Nome do produto para exibição
     private String imagemProduto; // Imagem do produto para exibição
     private Integer quantidade;
-    private BigDecimal precoUnitario;
-    private BigDecimal subtotal; // PreçoUnitario * Quantidade
+    private Dinheiro precoUnitario;
+    private Dinheiro subtotal; // PreçoUnitario * Quantidade
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Dinheiro;
+
+// Projeção lida do ItemCarrinhoRepository logo depois de uma inclusão: a linha do produto, a versão do carrinho
+// e o novo total, sem carregar as demais linhas
+public interface ItemCarrinhoSomado {
+    Long getId();
+    Integer getQuantidade();
+    Long getPrecoUnitarioCentavos(); // Coluna preco_unitario, lida crua pela consulta nativa
+    Long getVersaoItem(); // 0 se a linha foi criada pela inclusão
+    Long getVersaoCarrinho();
+    Long getTotalCentavos();
+
+    default Dinheiro getPrecoUnitario() {
+        return Dinheiro.deCentavos(getPrecoUnitarioCentavos());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Dinheiro;
+import lombok.Data;
+
+@Data
+public class ItemPedidoRequestDTO {
+    private Long produtoId;
+    private Integer quantidade;
+    private Dinheiro precoUnitario; // Opcional: o preço exibido ao cliente; se não for mais o atual, o pedido é recusado
+}
@@ -1,7 +1,7 @@
 package com.example.menubackend.dto;
 
+import com.example.menubackend.model.Dinheiro;
 import lombok.Data;
-import java.math.BigDecimal;
 
 @Data
 public class ItemPedidoResponseDTO {
@@ -10,6 +10,6 @@ public class ItemPedidoResponseDTO {
     private String nomeProduto; // Nome do produto para exibição
     private String imagemProduto; // Imagem do produto para exibição
     private Integer quantidade;
-    private BigDecimal precoUnitario;
-    private BigDecimal subtotal; // PrecoUnitario * Quantidade
+    private Dinheiro precoUnitario;
+    private Dinheiro subtotal; // PrecoUnitario * Quantidade
 }
\ No newline at end of file
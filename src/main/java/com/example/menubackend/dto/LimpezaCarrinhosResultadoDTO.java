@@ -0,0 +1,15 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LimpezaCarrinhosResultadoDTO {
+    private int carrinhosRemovidos;
+    private int itensRemovidos;
+    private int lotes;
+    private long duracaoMs;
+}
@@ -0,0 +1,16 @@
+package com.example.menubackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigracaoCarrinhosResultadoDTO {
+    private String destino;
+    private int carrinhosMigrados;
+    private int itensMigrados;
+    private int lotes;
+    private long duracaoMs;
+}
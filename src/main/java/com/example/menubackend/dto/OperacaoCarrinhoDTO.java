@@ -0,0 +1,18 @@
+package com.example.menubackend.dto;
+
+import lombok.Data;
+
+// Uma operação do lote do carrinho; em ATUALIZAR e REMOVER o item pode ser indicado por "itemId" ou por "produtoId"
+@Data
+public class OperacaoCarrinhoDTO {
+    private Tipo tipo;
+    private Long itemId;
+    private Long produtoId;
+    private Integer quantidade; // Em ADICIONAR, quanto somar; em ATUALIZAR, a nova quantidade
+
+    public enum Tipo {
+        ADICIONAR,
+        ATUALIZAR,
+        REMOVER
+    }
+}
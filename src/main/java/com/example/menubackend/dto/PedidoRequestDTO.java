@@ -2,7 +2,10 @@ package com.example.menubackend.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
+// Pedido montado direto pelo cliente (quiosque, balcão), sem passar pelo carrinho
 @Data
 public class PedidoRequestDTO {
-
+    private List<ItemPedidoRequestDTO> itens;
 }
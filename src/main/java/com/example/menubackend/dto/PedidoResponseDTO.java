@@ -1,9 +1,9 @@
 package com.example.menubackend.dto;
 
 import com.example.menubackend.model.StatusPedido;
+import com.example.menubackend.model.Dinheiro;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,6 +14,6 @@ public class PedidoResponseDTO {
     private String userName; // Nome do usuário para exibição no admin
     private LocalDateTime dataPedido;
     private StatusPedido status;
-    private BigDecimal valorTotal;
+    private Dinheiro valorTotal;
     private List<ItemPedidoResponseDTO> itens;
 }
\ No newline at end of file
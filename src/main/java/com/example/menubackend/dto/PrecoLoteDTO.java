@@ -0,0 +1,17 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Informe "ids" ou "categoria" para selecionar os produtos, e "preco" (valor absoluto) ou "percentual" (ex.: 10 ou -15)
+@Data
+public class PrecoLoteDTO {
+    private List<Long> ids;
+    private Categoria categoria;
+    private Dinheiro preco; // Em reais, arredondado para centavos
+    private BigDecimal percentual;
+}
@@ -1,17 +1,24 @@
 package com.example.menubackend.dto;
 
 import com.example.menubackend.model.Categoria; // Importar a enum Categoria
+import com.example.menubackend.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
-import java.math.BigDecimal; // Usar BigDecimal para o preço
-
 @Data
 public class ProdutoDTO {
     private Long id; 
     private String nome;
     private String descricao;
-    private BigDecimal preco; 
+    private Dinheiro preco; 
     private Categoria categoria; 
     private Boolean disponibilidade; 
     private String imagem;
+
+    // Variantes armazenadas localmente; null enquanto o produto não tiver imagem enviada
+    private String imagemMiniatura;
+    private String imagemMedia;
+
+    @JsonIgnore
+    private Long imagemVersao;
 }
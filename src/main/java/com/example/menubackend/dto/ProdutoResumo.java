@@ -0,0 +1,22 @@
+package com.example.menubackend.dto;
+
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Projeção lida direto do ProdutoRepository para a listagem paginada (sem a descrição, que pode ser longa)
+public interface ProdutoResumo {
+    Long getId();
+    String getNome();
+
+    @JsonIgnore
+    Long getPrecoCentavos(); // Coluna preco, lida crua pela consulta nativa
+
+    default Dinheiro getPreco() {
+        return getPrecoCentavos() == null ? null : Dinheiro.deCentavos(getPrecoCentavos());
+    }
+
+    Categoria getCategoria();
+    Boolean getDisponibilidade();
+    String getImagem();
+}
@@ -12,6 +12,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_carrinho_data_atualizacao", columnList = "data_atualizacao")) // Busca de carrinhos abandonados
 public class Carrinho {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +25,17 @@ public class Carrinho {
     private LocalDateTime dataCriacao;
     private LocalDateTime dataAtualizacao;
 
+    @Version
+    private Long versao; // Avança a cada alteração do carrinho ou de seus itens (controle de concorrência otimista)
+
+    // Itens serializados na própria linha quando app.carrinho.modo=compacto; nulo enquanto o carrinho usa item_carrinho
+    @Column(name = "itens_compactos", columnDefinition = "BLOB")
+    private byte[] itensCompactos;
+
+    // ID do último carrinho de visitante mesclado a este: o mesmo token enviado de novo não soma os itens outra vez
+    @Column(name = "ultimo_visitante_mesclado", length = 16)
+    private String ultimoVisitanteMesclado;
+
     @OneToMany(mappedBy = "carrinho", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ItemCarrinho> itens = new ArrayList<>();
 }
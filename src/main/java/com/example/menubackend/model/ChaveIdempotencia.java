@@ -0,0 +1,36 @@
+package com.example.menubackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Idempotency-Key já usada por um usuário na finalização do pedido e o pedido que ela criou.
+// Gravada e lida por JDBC (IdempotenciaPedidoService); a entidade existe para o Hibernate criar a tabela.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_chave_idempotencia_usuario", columnNames = {"user_id", "chave"}),
+        indexes = @Index(name = "idx_chave_idempotencia_expira_em", columnList = "expira_em")) // Limpeza das vencidas
+public class ChaveIdempotencia {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 100)
+    private String chave;
+
+    @Column(name = "pedido_id", nullable = false)
+    private Long pedidoId;
+
+    @Column(nullable = false)
+    private LocalDateTime criadaEm;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+}
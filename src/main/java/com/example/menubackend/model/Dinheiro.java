@@ -0,0 +1,94 @@
+package com.example.menubackend.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valor em dinheiro guardado em centavos (long). Totais de carrinho e pedido viram aritmética de inteiros,
+ * sem BigDecimal por linha. O arredondamento acontece só na entrada, de forma explícita (meio centavo para cima),
+ * e o JSON sai como número exato com duas casas (ex.: 35.00), o mesmo formato de antes.
+ */
+@JsonSerialize(using = Dinheiro.Serializador.class)
+@JsonDeserialize(using = Dinheiro.Desserializador.class)
+public record Dinheiro(long centavos) implements Comparable<Dinheiro> {
+
+    public static final Dinheiro ZERO = new Dinheiro(0);
+
+    public static Dinheiro deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos);
+    }
+
+    // Converte um valor em reais, arredondando para o centavo mais próximo (0,005 sobe); null continua null
+    public static Dinheiro deReais(BigDecimal reais) {
+        if (reais == null) {
+            return null;
+        }
+        return deCentavos(reais.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public static Dinheiro deReais(String reais) {
+        return reais == null ? null : deReais(new BigDecimal(reais.trim()));
+    }
+
+    public Dinheiro mais(Dinheiro outro) {
+        return deCentavos(Math.addExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro vezes(int quantidade) {
+        return deCentavos(Math.multiplyExact(centavos, quantidade));
+    }
+
+    public BigDecimal emReais() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    // Texto exato em reais com duas casas e ponto decimal (ex.: 35.00, -0.50), usado no JSON e nas exportações
+    @Override
+    public String toString() {
+        long absoluto = Math.abs(centavos);
+        long centavosResto = absoluto % 100;
+        return (centavos < 0 ? "-" : "") + absoluto / 100 + (centavosResto < 10 ? ".0" : ".") + centavosResto;
+    }
+
+    public static class Serializador extends JsonSerializer<Dinheiro> {
+        @Override
+        public void serialize(Dinheiro valor, JsonGenerator gerador, SerializerProvider provider) throws IOException {
+            gerador.writeNumber(valor.toString());
+        }
+    }
+
+    // Aceita número (35.5) ou texto ("35.50") em reais
+    public static class Desserializador extends JsonDeserializer<Dinheiro> {
+        @Override
+        public Dinheiro deserialize(JsonParser parser, DeserializationContext contexto) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return deReais(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                try {
+                    return parser.getText().isBlank() ? null : deReais(parser.getText());
+                } catch (NumberFormatException e) {
+                    return (Dinheiro) contexto.handleWeirdStringValue(Dinheiro.class, parser.getText(), "valor monetário inválido");
+                }
+            }
+            return (Dinheiro) contexto.handleUnexpectedToken(Dinheiro.class, parser);
+        }
+    }
+}
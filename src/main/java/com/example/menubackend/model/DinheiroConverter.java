@@ -0,0 +1,19 @@
+package com.example.menubackend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Grava todo atributo Dinheiro das entidades como BIGINT em centavos
+@Converter(autoApply = true)
+public class DinheiroConverter implements AttributeConverter<Dinheiro, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Dinheiro valor) {
+        return valor == null ? null : valor.centavos();
+    }
+
+    @Override
+    public Dinheiro convertToEntityAttribute(Long centavos) {
+        return centavos == null ? null : Dinheiro.deCentavos(centavos);
+    }
+}
@@ -2,10 +2,11 @@ package com.example.menubackend.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import java.math.BigDecimal;
 
 @Data
 @Entity
+// Uma linha por produto em cada carrinho: inclusões simultâneas do mesmo produto viram soma, nunca linhas duplicadas
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_item_carrinho_produto", columnNames = {"carrinho_id", "produto_id"}))
 public class ItemCarrinho {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,5 +24,8 @@ public class ItemCarrinho {
     private Integer quantidade;
 
     @Column(nullable = false)
-    private BigDecimal precoUnitario; // Preço do produto no momento em que foi adicionado ao carrinho
+    private Dinheiro precoUnitario; // Preço do produto no momento em que foi adicionado ao carrinho
+
+    @Version
+    private Long versao; // Controle de concorrência otimista
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package com.example.menubackend.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import java.math.BigDecimal;
 
 @Data
 @Entity
@@ -23,5 +22,5 @@ public class ItemPedido {
     private Integer quantidade;
 
     @Column(nullable = false)
-    private BigDecimal precoUnitario; // Preço do produto no momento da finalização do pedido
+    private Dinheiro precoUnitario; // Preço do produto no momento da finalização do pedido
 }
\ No newline at end of file
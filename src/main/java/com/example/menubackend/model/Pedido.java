@@ -2,13 +2,17 @@ package com.example.menubackend.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @Entity
+@Table(indexes = { // Listagem administrativa paginada por cursor (data_pedido, id), com ou sem filtro
+        @Index(name = "idx_pedido_data_id", columnList = "data_pedido, id"),
+        @Index(name = "idx_pedido_status_data_id", columnList = "status, data_pedido, id"),
+        @Index(name = "idx_pedido_usuario_data_id", columnList = "user_id, data_pedido, id")
+})
 public class Pedido {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,7 +30,7 @@ public class Pedido {
     private StatusPedido status;
 
     @Column(nullable = false)
-    private BigDecimal valorTotal;
+    private Dinheiro valorTotal;
 
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ItemPedido> itens = new ArrayList<>();
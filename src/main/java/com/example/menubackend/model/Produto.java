@@ -1,20 +1,23 @@
 package com.example.menubackend.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.EnumType;  
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;   
 import lombok.AllArgsConstructor;  
-import java.math.BigDecimal; 
 
 @Data 
 @NoArgsConstructor 
 @AllArgsConstructor
 @Entity 
+@Table(indexes = @Index(name = "idx_produto_categoria_id", columnList = "categoria, id")) // Listagem paginada por cursor
 public class Produto {
     @Id 
     @GeneratedValue(strategy = GenerationType.IDENTITY) 
@@ -23,12 +26,17 @@ public class Produto {
     private String nome;
     private String descricao;
 
-    private BigDecimal preco; 
+    private Dinheiro preco; 
 
-    @Enumerated(EnumType.STRING) 
+    // VARCHAR em vez do enum(...) que o Hibernate cria no MySQL: o enum ordena pela posição da constante, e a
+    // listagem por cursor (ORDER BY categoria e categoria > ?) precisa ordenar e comparar pelo mesmo texto
+    @Enumerated(EnumType.STRING)
+    @Column(length = 30, columnDefinition = "varchar(30)")
     private Categoria categoria; 
 
     private Boolean disponibilidade;
     private String imagem;
 
+    private Long imagemVersao; // Versão da imagem armazenada localmente; null quando não há upload
+
 }
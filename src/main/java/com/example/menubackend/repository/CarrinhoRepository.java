@@ -1,11 +1,58 @@
 package com.example.menubackend.repository;
 
 import com.example.menubackend.model.Carrinho;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface CarrinhoRepository extends JpaRepository<Carrinho, Long> {
     // Encontra um carrinho associado a um ID de usuário específico.
     // Como um usuário deve ter apenas um carrinho ativo, retorna um Optional.
     Optional<Carrinho> findByUsuarioId(Long userId);
-}
\ No newline at end of file
+
+    // Carrinho com usuário, itens e produtos em uma única consulta, independente da quantidade de itens.
+    // As roles (EAGER) não entram no join: multiplicariam as linhas e duplicariam os itens da lista;
+    // o Hibernate as carrega com um único SELECT adicional.
+    @Query("SELECT c FROM Carrinho c " +
+            "JOIN FETCH c.usuario u " +
+            "LEFT JOIN FETCH c.itens i " +
+            "LEFT JOIN FETCH i.produto " +
+            "WHERE u.id = :userId")
+    Optional<Carrinho> findCompletoByUsuarioId(@Param("userId") Long userId);
+
+    // Só a linha do carrinho e o usuário, sem os itens: suficiente no layout compacto, em que os itens
+    // estão na coluna itens_compactos
+    @Query("SELECT c FROM Carrinho c JOIN FETCH c.usuario u WHERE u.id = :userId")
+    Optional<Carrinho> findComUsuarioByUsuarioId(@Param("userId") Long userId);
+
+    // O mesmo, travando a linha do carrinho até o fim da transação: no layout compacto toda alteração reescreve
+    // essa linha, então toques simultâneos no mesmo carrinho esperam a vez em vez de disputar a versão
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Carrinho c JOIN FETCH c.usuario u WHERE u.id = :userId")
+    Optional<Carrinho> findComUsuarioParaAlteracaoByUsuarioId(@Param("userId") Long userId);
+
+    // Marca o carrinho do usuário como alterado e avança a versão, invalidando leituras otimistas em andamento.
+    // Retorna 0 se o usuário não tem carrinho.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Carrinho c SET c.dataAtualizacao = :agora, c.versao = c.versao + 1 WHERE c.usuario.id = :userId")
+    int registrarAlteracao(@Param("userId") Long userId, @Param("agora") LocalDateTime agora);
+
+    // Reserva a mesclagem do carrinho de visitante: retorna 0 se esse carrinho já foi mesclado ao do usuário.
+    // Avança a versão para que gravações de quem leu o carrinho antes falhem em vez de apagar a marca.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Carrinho c SET c.ultimoVisitanteMesclado = :visitanteId, c.versao = c.versao + 1 " +
+            "WHERE c.usuario.id = :userId AND (c.ultimoVisitanteMesclado IS NULL OR c.ultimoVisitanteMesclado <> :visitanteId)")
+    int reservarMesclagem(@Param("userId") Long userId, @Param("visitanteId") String visitanteId);
+
+    // Desfaz a reserva quando a mesclagem falha, para que o mesmo token possa ser enviado de novo
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Carrinho c SET c.ultimoVisitanteMesclado = NULL, c.versao = c.versao + 1 " +
+            "WHERE c.usuario.id = :userId AND c.ultimoVisitanteMesclado = :visitanteId")
+    int liberarMesclagem(@Param("userId") Long userId, @Param("visitanteId") String visitanteId);
+}
@@ -1,7 +1,12 @@
 package com.example.menubackend.repository;
 
+import com.example.menubackend.dto.ItemCarrinhoSomado;
 import com.example.menubackend.model.ItemCarrinho;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +16,37 @@ public interface ItemCarrinhoRepository extends JpaRepository<ItemCarrinho, Long
 
     // Encontra um item específico em um carrinho para um determinado produto.
     Optional<ItemCarrinho> findByCarrinhoIdAndProdutoId(Long carrinhoId, Long produtoId);
-}
\ No newline at end of file
+
+    // Soma a quantidade ao item do produto no carrinho do usuário, ou cria a linha, em um único comando atômico
+    // (chave única carrinho_id + produto_id). O preço unitário de uma linha existente não muda. Retorna 0 se o
+    // usuário não tem carrinho.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO item_carrinho (carrinho_id, produto_id, quantidade, preco_unitario, versao) " +
+            "SELECT c.id, :produtoId, :quantidade, :precoUnitarioCentavos, 0 FROM carrinho c WHERE c.user_id = :userId " +
+            "ON DUPLICATE KEY UPDATE quantidade = item_carrinho.quantidade + VALUES(quantidade), versao = item_carrinho.versao + 1",
+            nativeQuery = true)
+    int somarOuInserir(@Param("userId") Long userId, @Param("produtoId") Long produtoId,
+                       @Param("quantidade") int quantidade, @Param("precoUnitarioCentavos") long precoUnitarioCentavos);
+
+    // A linha do produto no carrinho do usuário (chave única carrinho_id + produto_id), a versão do carrinho e
+    // o total somado no banco, em uma consulta. Vazio se o produto não está no carrinho.
+    @Query(value = "SELECT i.id AS id, i.quantidade AS quantidade, i.preco_unitario AS precoUnitarioCentavos, " +
+            "i.versao AS versaoItem, c.versao AS versaoCarrinho, " +
+            "(SELECT CAST(COALESCE(SUM(t.quantidade * t.preco_unitario), 0) AS SIGNED) FROM item_carrinho t " +
+            " WHERE t.carrinho_id = c.id) AS totalCentavos " +
+            "FROM carrinho c JOIN item_carrinho i ON i.carrinho_id = c.id AND i.produto_id = :produtoId " +
+            "WHERE c.user_id = :userId", nativeQuery = true)
+    Optional<ItemCarrinhoSomado> findSomadoByUsuarioIdAndProdutoId(@Param("userId") Long userId, @Param("produtoId") Long produtoId);
+
+    // Soma (ou subtrai, com valor negativo) a quantidade de um item já existente, sem criar linha
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ItemCarrinho i SET i.quantidade = i.quantidade + :quantidade, i.versao = i.versao + 1 " +
+            "WHERE i.produto.id = :produtoId AND i.carrinho.id IN (SELECT c.id FROM Carrinho c WHERE c.usuario.id = :userId)")
+    int somarQuantidade(@Param("userId") Long userId, @Param("produtoId") Long produtoId, @Param("quantidade") int quantidade);
+
+    // Remove os itens que ficaram com quantidade zero ou negativa
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM ItemCarrinho i " +
+            "WHERE i.quantidade <= 0 AND i.carrinho.id IN (SELECT c.id FROM Carrinho c WHERE c.usuario.id = :userId)")
+    int apagarZerados(@Param("userId") Long userId);
+}
@@ -1,10 +1,84 @@
 package com.example.menubackend.repository;
 
+import com.example.menubackend.dto.ProdutoResumo;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
 import com.example.menubackend.model.Produto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface ProdutoRepository extends JpaRepository<Produto, Long> {
     List<Produto> findByDisponibilidadeTrue();
-}
\ No newline at end of file
+
+    // Página da listagem por cursor (categoria, id): usa o índice idx_produto_categoria_id em vez de OFFSET.
+    // Filtros e cursor nulos são ignorados.
+    @Query(value = "SELECT p.id AS id, p.nome AS nome, p.preco AS precoCentavos, p.categoria AS categoria, " +
+            "p.disponibilidade AS disponibilidade, p.imagem AS imagem " +
+            "FROM produto p " +
+            "WHERE (:categoria IS NULL OR p.categoria = :categoria) " +
+            "AND (:disponivel IS NULL OR p.disponibilidade = :disponivel) " +
+            "AND (:cursorCategoria IS NULL OR p.categoria > :cursorCategoria " +
+            "     OR (p.categoria = :cursorCategoria AND p.id > :cursorId)) " +
+            "ORDER BY p.categoria, p.id " +
+            "LIMIT :limite", nativeQuery = true)
+    List<ProdutoResumo> findPaginaResumo(@Param("categoria") String categoria,
+                                         @Param("disponivel") Boolean disponivel,
+                                         @Param("cursorCategoria") String cursorCategoria,
+                                         @Param("cursorId") Long cursorId,
+                                         @Param("limite") int limite);
+
+    // Publica uma nova versão de imagem apenas se for mais recente que a atual; retorna 0 se nada mudou
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto p SET p.imagemVersao = :versao " +
+            "WHERE p.id = :id AND (p.imagemVersao IS NULL OR p.imagemVersao < :versao)")
+    int atualizarImagemVersao(@Param("id") Long id, @Param("versao") long versao);
+
+    // --- Alterações em lote: um único UPDATE por operação; linhas que já têm o valor desejado não são tocadas
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto p SET p.disponibilidade = :disponivel " +
+            "WHERE p.id IN :ids AND (p.disponibilidade IS NULL OR p.disponibilidade <> :disponivel)")
+    int atualizarDisponibilidadePorIds(@Param("ids") Collection<Long> ids, @Param("disponivel") boolean disponivel);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto p SET p.disponibilidade = :disponivel " +
+            "WHERE p.categoria = :categoria AND (p.disponibilidade IS NULL OR p.disponibilidade <> :disponivel)")
+    int atualizarDisponibilidadePorCategoria(@Param("categoria") Categoria categoria, @Param("disponivel") boolean disponivel);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto p SET p.preco = :preco " +
+            "WHERE p.id IN :ids AND (p.preco IS NULL OR p.preco <> :preco)")
+    int atualizarPrecoPorIds(@Param("ids") Collection<Long> ids, @Param("preco") Dinheiro preco);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto p SET p.preco = :preco " +
+            "WHERE p.categoria = :categoria AND (p.preco IS NULL OR p.preco <> :preco)")
+    int atualizarPrecoPorCategoria(@Param("categoria") Categoria categoria, @Param("preco") Dinheiro preco);
+
+    // Reajuste percentual: fator 1.10 = +10%. A coluna guarda centavos; ROUND sobre o produto exato (DECIMAL)
+    // arredonda para o centavo mais próximo, meio centavo para cima, como Dinheiro.deReais.
+    // Consulta nativa porque a aritmética é sobre os centavos, não sobre o tipo Dinheiro da entidade.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE produto SET preco = ROUND(preco * :fator) " +
+            "WHERE id IN (:ids) AND preco IS NOT NULL", nativeQuery = true)
+    int reajustarPrecoPorIds(@Param("ids") Collection<Long> ids, @Param("fator") BigDecimal fator);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE produto SET preco = ROUND(preco * :fator) " +
+            "WHERE categoria = :categoria AND preco IS NOT NULL", nativeQuery = true)
+    int reajustarPrecoPorCategoria(@Param("categoria") String categoria, @Param("fator") BigDecimal fator);
+}
@@ -1,6 +1,7 @@
 package com.example.menubackend.security;
 
 import com.example.menubackend.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -65,12 +66,17 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Retomada de uma requisição já autorizada (ex.: fim de um fluxo SSE); sem sessão, o JWT não é relido nela
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/produtos/ativos").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/produtos/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/produtos/cardapio/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/produtos/{id}/imagem").permitAll()
                         // --- Adicione esta linha para permitir acesso à rota /error ---
                         .requestMatchers("/error").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/api/carrinho/visitante", "/api/carrinho/visitante/**").permitAll() // Carrinho sem login, só no token
                         .requestMatchers("/api/carrinho/**", "/api/pedidos/**").hasAnyRole("CLIENTE", "ADMIN")
                         .anyRequest().authenticated()
                 );
@@ -92,7 +98,9 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of("http://localhost:5173"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Carrinho-Visitante", "X-Carrinho-Versao",
+                "Idempotency-Key"));
+        configuration.setExposedHeaders(List.of("X-Carrinho-Visitante"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
@@ -0,0 +1,79 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoDeltaDTO;
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.ItemCarrinhoResponseDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resultado de uma alteração do carrinho, em qualquer modo: o carrinho completo depois dela, a versão que ele
+ * tinha antes e as quantidades de antes por ID de item. quantidadesAntes é nulo quando o estado anterior não é
+ * conhecido; nesse caso a resposta é sempre o carrinho completo.
+ * Quem já sabe a versão do cliente pode entregar o delta pronto (soDelta), sem montar o carrinho completo.
+ */
+public record AlteracaoCarrinho(CarrinhoResponseDTO carrinho, Long versaoAnterior, Map<Long, Integer> quantidadesAntes,
+                                CarrinhoDeltaDTO delta) {
+
+    // Versão do carrinho que o cliente tem; enviá-lo numa alteração pede a resposta em delta
+    public static final String CABECALHO_VERSAO = "X-Carrinho-Versao";
+
+    public AlteracaoCarrinho(CarrinhoResponseDTO carrinho, Long versaoAnterior, Map<Long, Integer> quantidadesAntes) {
+        this(carrinho, versaoAnterior, quantidadesAntes, null);
+    }
+
+    // Delta montado para a versão que o cliente informou (delta.versaoAnterior); não há carrinho completo
+    public static AlteracaoCarrinho soDelta(CarrinhoDeltaDTO delta) {
+        return new AlteracaoCarrinho(null, delta.getVersaoAnterior(), null, delta);
+    }
+
+    /**
+     * Corpo da resposta: o delta, se o cliente informou exatamente a versão sobre a qual a alteração foi feita;
+     * senão (versão não informada, antiga ou alterada por outra requisição nesse meio-tempo), o carrinho completo.
+     */
+    public Object resposta(Long versaoCliente) {
+        if (delta != null) {
+            if (!delta.getVersaoAnterior().equals(versaoCliente)) {
+                throw new IllegalStateException("Delta montado para outra versão do carrinho: " + delta.getVersaoAnterior());
+            }
+            return delta;
+        }
+        if (versaoCliente == null || quantidadesAntes == null || !versaoCliente.equals(versaoAnterior)) {
+            return carrinho;
+        }
+        Set<Long> removidos = new LinkedHashSet<>(quantidadesAntes.keySet());
+        List<ItemCarrinhoResponseDTO> alterados = new ArrayList<>();
+        for (ItemCarrinhoResponseDTO item : carrinho.getItens()) {
+            removidos.remove(item.getId());
+            Integer quantidadeAntes = quantidadesAntes.get(item.getId());
+            if (quantidadeAntes == null) {
+                alterados.add(item);
+            } else if (quantidadeAntes != item.getQuantidade().intValue()) {
+                alterados.add(semNomeEImagem(item));
+            }
+        }
+
+        CarrinhoDeltaDTO delta = new CarrinhoDeltaDTO();
+        delta.setVersaoAnterior(versaoAnterior);
+        delta.setVersao(carrinho.getVersao());
+        delta.setItensAlterados(alterados);
+        delta.setItensRemovidos(new ArrayList<>(removidos));
+        delta.setValorTotal(carrinho.getValorTotal());
+        return delta;
+    }
+
+    // O cliente já tem nome e imagem desta linha. Cópia: o carrinho completo continua intacto para quem mais o usar
+    private static ItemCarrinhoResponseDTO semNomeEImagem(ItemCarrinhoResponseDTO item) {
+        ItemCarrinhoResponseDTO alterado = new ItemCarrinhoResponseDTO();
+        alterado.setId(item.getId());
+        alterado.setProdutoId(item.getProdutoId());
+        alterado.setQuantidade(item.getQuantidade());
+        alterado.setPrecoUnitario(item.getPrecoUnitario());
+        alterado.setSubtotal(item.getSubtotal());
+        return alterado;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.AlteracaoCardapioDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Publica as alterações do cardápio via Server-Sent Events, substituindo o polling de /api/produtos/ativos.
+ * Cada evento "cardapio" tem como id a versão do cardápio que ele produziu.
+ */
+@Service
+public class CardapioEventosService {
+
+    public static final String EVENTO_VERSAO = "versao";
+    public static final String EVENTO_CARDAPIO = "cardapio";
+
+    private final SseBroadcaster canal;
+
+    public CardapioEventosService(ObjectMapper objectMapper,
+                                  @Value("${app.eventos.maximo-conexoes:5000}") int maximoConexoes,
+                                  @Value("${app.eventos.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${app.eventos.maximo-pendentes:64}") int maximoPendentes,
+                                  @Value("${app.eventos.threads-escrita:4}") int threadsEscrita) {
+        this.canal = new SseBroadcaster("cardapio", objectMapper, maximoConexoes, timeoutMs,
+                maximoPendentes, threadsEscrita);
+    }
+
+    /**
+     * Ao conectar, o cliente recebe o que mudou desde a versão que já tem (evento "cardapio"), ou apenas
+     * a versão atual (evento "versao") se não houver nada pendente. O estado inicial é calculado na thread
+     * do canal, logo antes de o inscrito começar a receber eventos, para que nenhuma versão se perca.
+     */
+    public SseEmitter inscrever(Supplier<AlteracaoCardapioDTO> pendentes) {
+        return canal.inscrever(emissor -> {
+            AlteracaoCardapioDTO alteracao = pendentes.get();
+            String id = String.valueOf(alteracao.getVersao());
+            if (alteracao.isCompleto() || !alteracao.getAdicionados().isEmpty() || !alteracao.getAlterados().isEmpty()
+                    || !alteracao.getRemovidos().isEmpty()) {
+                canal.enviar(emissor, EVENTO_CARDAPIO, id, alteracao);
+            } else {
+                canal.enviar(emissor, EVENTO_VERSAO, id, Map.of("versao", alteracao.getVersao()));
+            }
+        });
+    }
+
+    public void publicar(AlteracaoCardapioDTO alteracao) {
+        canal.publicar(EVENTO_CARDAPIO, String.valueOf(alteracao.getVersao()), alteracao);
+    }
+
+    @Scheduled(fixedRateString = "${app.eventos.heartbeat-ms:20000}")
+    public void manterConexoes() {
+        canal.manterConexoes();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        canal.encerrar();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.menubackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Corpo JSON já serializado de uma resposta do cardápio, nas variantes sem compressão e gzip.
+ * É montado uma única vez por versão do snapshot e reaproveitado por todas as requisições.
+ */
+@Getter
+public final class CardapioPayload {
+
+    private final String etag; // ETag forte da variante sem compressão
+    private final String etagGzip; // ETag forte da variante gzip
+    private final byte[] json;
+    private final byte[] jsonGzip;
+
+    private CardapioPayload(String etag, String etagGzip, byte[] json, byte[] jsonGzip) {
+        this.etag = etag;
+        this.etagGzip = etagGzip;
+        this.json = json;
+        this.jsonGzip = jsonGzip;
+    }
+
+    public static CardapioPayload of(long versao, Object corpo, ObjectMapper objectMapper) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(corpo);
+            return new CardapioPayload("\"" + versao + "\"", "\"" + versao + "-gzip\"", json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o cardápio", e);
+        }
+    }
+
+    // Verifica se o If-None-Match enviado pelo cliente corresponde a alguma das variantes
+    public boolean correspondeA(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String tag = candidato.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(etagGzip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] dados) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(dados.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(dados);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CardapioAgrupadoDTO;
+import com.example.menubackend.dto.CategoriaCardapioDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia imutável do cardápio em um determinado momento.
+ * Uma nova instância é montada a cada alteração de produto e trocada atomicamente
+ * no CardapioSnapshotService, então leitores nunca veem um estado parcial.
+ * Os ProdutoDTO são compartilhados entre os leitores e não podem ser alterados: fora dos serviços
+ * (ex.: no ProdutoService) os produtos são entregues como cópias.
+ */
+@Getter
+public final class CardapioSnapshot {
+
+    private final long versao;
+    private final List<ProdutoDTO> produtos; // Todos os produtos, ordenados por ID
+    private final List<ProdutoDTO> ativos; // Apenas os produtos disponíveis
+    private final Map<Long, ProdutoDTO> porId;
+
+    // Respostas já serializadas das listagens, prontas para escrita direta no corpo HTTP
+    private final CardapioPayload payloadProdutos;
+    private final CardapioPayload payloadAtivos;
+
+    // Cardápio de produtos disponíveis já agrupado por categoria, com contagem e faixa de preço
+    private final Map<Categoria, CategoriaCardapioDTO> porCategoria;
+    private final CardapioPayload payloadAgrupado;
+    private final Map<Categoria, CardapioPayload> payloadPorCategoria;
+
+    private CardapioSnapshot(long versao, List<ProdutoDTO> produtos, List<ProdutoDTO> ativos, Map<Long, ProdutoDTO> porId,
+                             ObjectMapper objectMapper) {
+        this.versao = versao;
+        this.produtos = produtos;
+        this.ativos = ativos;
+        this.porId = porId;
+        this.payloadProdutos = CardapioPayload.of(versao, produtos, objectMapper);
+        this.payloadAtivos = CardapioPayload.of(versao, ativos, objectMapper);
+
+        this.porCategoria = Collections.unmodifiableMap(agruparPorCategoria(ativos));
+        List<CategoriaCardapioDTO> naoVazias = porCategoria.values().stream()
+                .filter(grupo -> grupo.getQuantidade() > 0)
+                .toList();
+        this.payloadAgrupado = CardapioPayload.of(versao, new CardapioAgrupadoDTO(versao, naoVazias), objectMapper);
+        Map<Categoria, CardapioPayload> payloads = new EnumMap<>(Categoria.class);
+        porCategoria.forEach((categoria, grupo) -> payloads.put(categoria, CardapioPayload.of(versao, grupo, objectMapper)));
+        this.payloadPorCategoria = Collections.unmodifiableMap(payloads);
+    }
+
+    public static CardapioSnapshot of(long versao, Collection<ProdutoDTO> produtos, ObjectMapper objectMapper) {
+        List<ProdutoDTO> ordenados = new ArrayList<>(produtos);
+        ordenados.sort(Comparator.comparing(ProdutoDTO::getId));
+
+        List<ProdutoDTO> ativos = new ArrayList<>();
+        Map<Long, ProdutoDTO> porId = new HashMap<>();
+        for (ProdutoDTO produto : ordenados) {
+            porId.put(produto.getId(), produto);
+            if (Boolean.TRUE.equals(produto.getDisponibilidade())) {
+                ativos.add(produto);
+            }
+        }
+
+        return new CardapioSnapshot(versao,
+                Collections.unmodifiableList(ordenados),
+                Collections.unmodifiableList(ativos),
+                Collections.unmodifiableMap(porId),
+                objectMapper);
+    }
+
+    public ProdutoDTO getProduto(Long id) {
+        return porId.get(id);
+    }
+
+    public CardapioPayload getPayloadCategoria(Categoria categoria) {
+        return payloadPorCategoria.get(categoria);
+    }
+
+    // Agrupa os produtos (já ordenados por ID) mantendo todas as categorias da enum, inclusive as vazias
+    private static Map<Categoria, CategoriaCardapioDTO> agruparPorCategoria(List<ProdutoDTO> produtos) {
+        Map<Categoria, List<ProdutoDTO>> listas = new EnumMap<>(Categoria.class);
+        for (Categoria categoria : Categoria.values()) {
+            listas.put(categoria, new ArrayList<>());
+        }
+        for (ProdutoDTO produto : produtos) {
+            if (produto.getCategoria() != null) {
+                listas.get(produto.getCategoria()).add(produto);
+            }
+        }
+
+        Map<Categoria, CategoriaCardapioDTO> grupos = new EnumMap<>(Categoria.class);
+        listas.forEach((categoria, lista) -> {
+            Dinheiro minimo = null;
+            Dinheiro maximo = null;
+            for (ProdutoDTO produto : lista) {
+                Dinheiro preco = produto.getPreco();
+                if (preco == null) {
+                    continue;
+                }
+                minimo = minimo == null || preco.compareTo(minimo) < 0 ? preco : minimo;
+                maximo = maximo == null || preco.compareTo(maximo) > 0 ? preco : maximo;
+            }
+            grupos.put(categoria, new CategoriaCardapioDTO(categoria, lista.size(), minimo, maximo,
+                    Collections.unmodifiableList(lista)));
+        });
+        return grupos;
+    }
+}
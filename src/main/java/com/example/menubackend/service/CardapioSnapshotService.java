@@ -0,0 +1,224 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.AlteracaoCardapioDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Produto;
+import com.example.menubackend.repository.ProdutoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Mantém em memória o snapshot versionado do cardápio.
+ * Leituras não vão ao banco; escritas reconstroem o snapshot (copy-on-write), já com os
+ * payloads JSON serializados, e o trocam de uma vez. Cada nova versão é publicada como evento
+ * para os clientes inscritos em CardapioEventosService e registrada em um histórico limitado,
+ * usado para responder "o que mudou desde a versão N".
+ */
+@Service
+public class CardapioSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardapioSnapshotService.class);
+
+    private final ProdutoRepository produtoRepository;
+    private final ObjectMapper objectMapper;
+    private final ProdutoSearchIndex produtoSearchIndex;
+    private final CardapioEventosService cardapioEventosService;
+
+    private volatile CardapioSnapshot snapshot; // null até a primeira leitura
+
+    // A versão começa no instante de inicialização para continuar crescente entre reinícios da aplicação
+    private long ultimaVersao = System.currentTimeMillis();
+
+    // Histórico compacto (apenas IDs) das últimas versões, da mais antiga para a mais nova
+    private final Deque<RegistroAlteracao> historico = new ArrayDeque<>();
+    private final int maximoHistorico;
+    private long versaoBase; // O histórico cobre todas as alterações feitas depois desta versão
+
+    private record RegistroAlteracao(long versao, Long[] adicionados, Long[] alterados, Long[] removidos) {
+    }
+
+    public CardapioSnapshotService(ProdutoRepository produtoRepository, ObjectMapper objectMapper,
+                                   ProdutoSearchIndex produtoSearchIndex, CardapioEventosService cardapioEventosService,
+                                   @Value("${app.catalogo.historico.maximo-versoes:1000}") int maximoHistorico) {
+        this.produtoRepository = produtoRepository;
+        this.objectMapper = objectMapper;
+        this.produtoSearchIndex = produtoSearchIndex;
+        this.cardapioEventosService = cardapioEventosService;
+        this.maximoHistorico = maximoHistorico;
+    }
+
+    // Snapshot atual; carrega do banco apenas na primeira chamada
+    public CardapioSnapshot getSnapshot() {
+        CardapioSnapshot atual = snapshot;
+        if (atual != null) {
+            return atual;
+        }
+        synchronized (this) {
+            return snapshot != null ? snapshot : recarregar();
+        }
+    }
+
+    // Reconstrói o snapshot inteiro a partir do banco; se nada mudou, mantém a versão atual
+    public synchronized CardapioSnapshot recarregar() {
+        List<ProdutoDTO> produtos = produtoRepository.findAll().stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+
+        CardapioSnapshot anterior = snapshot;
+        AlteracaoCardapioDTO alteracao = anterior != null ? comparar(anterior.getPorId(), produtos) : null;
+        if (alteracao != null && alteracao.getAdicionados().isEmpty() && alteracao.getAlterados().isEmpty()
+                && alteracao.getRemovidos().isEmpty()) {
+            return anterior;
+        }
+
+        CardapioSnapshot novo = CardapioSnapshot.of(++ultimaVersao, produtos, objectMapper);
+        produtoSearchIndex.reconstruir(produtos);
+        snapshot = novo;
+        logger.info("Snapshot do cardápio recarregado: {} produtos, versão {}", produtos.size(), novo.getVersao());
+        if (alteracao != null) {
+            publicar(alteracao, anterior.getVersao(), novo.getVersao());
+        } else {
+            // Primeira carga: o histórico começa aqui
+            historico.clear();
+            versaoBase = novo.getVersao();
+        }
+        return novo;
+    }
+
+    // Reflete no snapshot a alteração (criação, atualização ou remoção) de um único produto.
+    // O produto é relido dentro do lock para que escritas concorrentes não deixem um estado antigo por último.
+    public synchronized void produtoAlterado(Long id) {
+        CardapioSnapshot atual = snapshot;
+        if (atual == null) {
+            return; // Ainda não carregado: a primeira leitura já trará o estado do banco
+        }
+
+        Optional<Produto> produto = produtoRepository.findById(id);
+        Map<Long, ProdutoDTO> produtos = new LinkedHashMap<>(atual.getPorId());
+        AlteracaoCardapioDTO alteracao = new AlteracaoCardapioDTO();
+        if (produto.isPresent()) {
+            ProdutoDTO dto = convertToDto(produto.get());
+            ProdutoDTO anterior = produtos.put(id, dto);
+            if (dto.equals(anterior)) {
+                return; // Nada mudou
+            }
+            (anterior == null ? alteracao.getAdicionados() : alteracao.getAlterados()).add(dto);
+            produtoSearchIndex.indexar(dto);
+        } else if (produtos.remove(id) == null) {
+            return; // Nada mudou
+        } else {
+            alteracao.getRemovidos().add(id);
+            produtoSearchIndex.remover(id);
+        }
+
+        CardapioSnapshot novo = CardapioSnapshot.of(++ultimaVersao, produtos.values(), objectMapper);
+        snapshot = novo;
+        publicar(alteracao, atual.getVersao(), novo.getVersao());
+    }
+
+    /**
+     * Produtos adicionados, alterados e removidos depois da versão informada, já no estado atual.
+     * Se o histórico não cobre essa versão (muito antiga, ou de antes de um reinício), devolve o cardápio
+     * completo em "adicionados" com completo = true.
+     */
+    public synchronized AlteracaoCardapioDTO alteracoesDesde(long desde) {
+        CardapioSnapshot atual = getSnapshot();
+        AlteracaoCardapioDTO resultado = new AlteracaoCardapioDTO();
+        resultado.setVersao(atual.getVersao());
+        resultado.setDesde(desde);
+        if (desde == atual.getVersao()) {
+            return resultado;
+        }
+        if (desde < versaoBase || desde > atual.getVersao()) {
+            resultado.setCompleto(true);
+            resultado.getAdicionados().addAll(atual.getProdutos());
+            return resultado;
+        }
+
+        // Junta os registros posteriores a "desde"; o estado de cada produto vem do snapshot atual
+        Set<Long> tocados = new LinkedHashSet<>();
+        Set<Long> adicionadosDepois = new HashSet<>();
+        for (RegistroAlteracao registro : historico) {
+            if (registro.versao() <= desde) {
+                continue;
+            }
+            Collections.addAll(tocados, registro.adicionados());
+            Collections.addAll(adicionadosDepois, registro.adicionados());
+            Collections.addAll(tocados, registro.alterados());
+            Collections.addAll(tocados, registro.removidos());
+        }
+        for (Long id : tocados) {
+            ProdutoDTO produto = atual.getProduto(id);
+            if (produto == null) {
+                if (!adicionadosDepois.contains(id)) {
+                    resultado.getRemovidos().add(id); // Criado e removido depois de "desde": o cliente nunca o viu
+                }
+            } else if (adicionadosDepois.contains(id)) {
+                resultado.getAdicionados().add(produto);
+            } else {
+                resultado.getAlterados().add(produto);
+            }
+        }
+        return resultado;
+    }
+
+    // Registra a nova versão no histórico e a envia aos inscritos
+    private void publicar(AlteracaoCardapioDTO alteracao, long versaoAnterior, long versao) {
+        alteracao.setVersao(versao);
+        alteracao.setDesde(versaoAnterior);
+        historico.addLast(new RegistroAlteracao(versao,
+                alteracao.getAdicionados().stream().map(ProdutoDTO::getId).toArray(Long[]::new),
+                alteracao.getAlterados().stream().map(ProdutoDTO::getId).toArray(Long[]::new),
+                alteracao.getRemovidos().toArray(Long[]::new)));
+        while (historico.size() > maximoHistorico) {
+            versaoBase = historico.removeFirst().versao();
+        }
+        cardapioEventosService.publicar(alteracao);
+    }
+
+    // Diferença entre o estado anterior e a lista recém-carregada do banco
+    private AlteracaoCardapioDTO comparar(Map<Long, ProdutoDTO> antes, List<ProdutoDTO> depois) {
+        AlteracaoCardapioDTO alteracao = new AlteracaoCardapioDTO();
+        Map<Long, ProdutoDTO> restantes = new HashMap<>(antes);
+        for (ProdutoDTO produto : depois) {
+            ProdutoDTO anterior = restantes.remove(produto.getId());
+            if (anterior == null) {
+                alteracao.getAdicionados().add(produto);
+            } else if (!Objects.equals(anterior, produto)) {
+                alteracao.getAlterados().add(produto);
+            }
+        }
+        alteracao.getRemovidos().addAll(restantes.keySet());
+        return alteracao;
+    }
+
+    private ProdutoDTO convertToDto(Produto produto) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setId(produto.getId());
+        dto.setNome(produto.getNome());
+        dto.setDescricao(produto.getDescricao());
+        dto.setPreco(produto.getPreco());
+        dto.setCategoria(produto.getCategoria());
+        dto.setDisponibilidade(produto.getDisponibilidade());
+        dto.setImagem(produto.getImagem());
+        ImagemProdutoService.preencherUrls(dto, produto.getImagemVersao());
+        return dto;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
+import com.example.menubackend.model.Carrinho;
+import com.example.menubackend.model.ItemCarrinho;
+import com.example.menubackend.model.User;
+import com.example.menubackend.repository.CarrinhoRepository;
+import com.example.menubackend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Carrinho no layout compacto (app.carrinho.modo=compacto): os itens ficam serializados na própria linha do
+ * carrinho (ver ItensCompactos), então cada alteração é um único UPDATE dessa linha, lida com SELECT ... FOR UPDATE.
+ * Nome e imagem dos produtos vêm do snapshot do cardápio, sem join com produto.
+ *
+ * Carrinhos ainda no layout em linhas são convertidos na primeira alteração: os itens de item_carrinho passam
+ * para a coluna, mantendo seus IDs, e as linhas são apagadas. A conversão em massa, nos dois sentidos, é feita
+ * pelo CarrinhoMigracaoService.
+ */
+@Service
+public class CarrinhoCompactoService {
+
+    private final boolean ativo;
+    private final CarrinhoRepository carrinhoRepository;
+    private final UserRepository userRepository;
+    private final CardapioSnapshotService cardapioSnapshotService;
+    private final RetentativaTransacaoService retentativaTransacaoService;
+
+    public CarrinhoCompactoService(CarrinhoRepository carrinhoRepository, UserRepository userRepository,
+                                   CardapioSnapshotService cardapioSnapshotService,
+                                   RetentativaTransacaoService retentativaTransacaoService,
+                                   @Value("${app.carrinho.modo:banco}") String modo) {
+        this.carrinhoRepository = carrinhoRepository;
+        this.userRepository = userRepository;
+        this.cardapioSnapshotService = cardapioSnapshotService;
+        this.retentativaTransacaoService = retentativaTransacaoService;
+        this.ativo = "compacto".equalsIgnoreCase(modo.trim());
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public CarrinhoResponseDTO obter(Long userId, boolean criar) {
+        if (!criar) {
+            Carrinho carrinho = carregar(userId);
+            return convertToDto(carrinho, ler(carrinho));
+        }
+        // Duas requisições simultâneas podem tentar criar o carrinho: a perdedora viola a chave única de user_id
+        return retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carrinhoRepository.findComUsuarioByUsuarioId(userId)
+                    .orElseGet(() -> criar(userId));
+            return convertToDto(carrinho, ler(carrinho));
+        });
+    }
+
+    public AlteracaoCarrinho adicionar(Long userId, Long produtoId, int quantidade) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        return alterar(userId, itens -> itens.adicionar(snapshot, produtoId, quantidade));
+    }
+
+    public AlteracaoCarrinho atualizar(Long userId, Long itemId, int quantidade) {
+        return alterar(userId, itens -> itens.atualizar(itens.buscar(itemId), quantidade));
+    }
+
+    public AlteracaoCarrinho remover(Long userId, Long itemId) {
+        return alterar(userId, itens -> itens.remover(itens.buscar(itemId)));
+    }
+
+    // As operações são aplicadas aos itens decodificados da coluna, que só é gravada se todas passarem
+    public AlteracaoCarrinho aplicarOperacoes(Long userId, List<OperacaoCarrinhoDTO> operacoes) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        return alterar(userId, itens -> itens.aplicar(operacoes, snapshot));
+    }
+
+    public void limpar(Long userId) {
+        alterar(userId, ItensCompactos::limpar);
+    }
+
+    // Participa da transação da finalização do pedido, travando o carrinho até o commit
+    public List<LinhaCarrinho> linhas(Long userId) {
+        return ler(carregarParaAlteracao(userId)).itens().stream()
+                .map(item -> new LinhaCarrinho(item.id, item.produtoId, item.quantidade, item.precoUnitario))
+                .toList();
+    }
+
+    // Na transação do pedido: o carrinho é a mesma entidade, já travada, lida em linhas()
+    public void removerLinhasPedidas(Long userId, List<LinhaCarrinho> linhas) {
+        Set<Long> pedidos = new HashSet<>();
+        linhas.forEach(linha -> pedidos.add(linha.itemId()));
+        Carrinho carrinho = carregar(userId);
+        ItensCompactos itens = ler(carrinho);
+        itens.itens().removeIf(item -> pedidos.contains(item.id));
+        gravar(carrinho, itens);
+    }
+
+    // Lê (com a linha travada), altera e grava a coluna em uma transação. O flush antes da resposta faz a
+    // versão do carrinho já ser a que o commit vai deixar no banco
+    private AlteracaoCarrinho alterar(Long userId, Consumer<ItensCompactos> alteracao) {
+        return retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carregarParaAlteracao(userId);
+            Long versaoAnterior = carrinho.getVersao();
+            ItensCompactos itens = ler(carrinho);
+            Map<Long, Integer> antes = itens.quantidades();
+            alteracao.accept(itens);
+            gravar(carrinho, itens);
+            carrinhoRepository.flush();
+            return new AlteracaoCarrinho(convertToDto(carrinho, itens), versaoAnterior, antes);
+        });
+    }
+
+    private Carrinho carregar(Long userId) {
+        return carrinhoRepository.findComUsuarioByUsuarioId(userId)
+                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    }
+
+    private Carrinho carregarParaAlteracao(Long userId) {
+        return carrinhoRepository.findComUsuarioParaAlteracaoByUsuarioId(userId)
+                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    }
+
+    private Carrinho criar(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+        Carrinho carrinho = new Carrinho();
+        carrinho.setUsuario(user);
+        carrinho.setDataCriacao(LocalDateTime.now());
+        carrinho.setDataAtualizacao(LocalDateTime.now());
+        carrinho.setItensCompactos(new ItensCompactos().codificar());
+        return carrinhoRepository.save(carrinho);
+    }
+
+    // Carrinho ainda sem a coluna preenchida: os itens vêm das linhas de item_carrinho (consultadas só nesse caso)
+    private static ItensCompactos ler(Carrinho carrinho) {
+        if (carrinho.getItensCompactos() != null) {
+            return ItensCompactos.decodificar(carrinho.getItensCompactos());
+        }
+        ItensCompactos itens = new ItensCompactos();
+        for (ItemCarrinho item : carrinho.getItens()) {
+            itens.incluir(item.getId(), item.getProduto().getId(), item.getQuantidade(), item.getPrecoUnitario());
+        }
+        return itens;
+    }
+
+    // Grava a coluna; as linhas antigas de item_carrinho, se houver, são apagadas pelo orphanRemoval
+    private static void gravar(Carrinho carrinho, ItensCompactos itens) {
+        if (carrinho.getItensCompactos() == null) {
+            carrinho.getItens().clear();
+        }
+        carrinho.setItensCompactos(itens.codificar());
+        carrinho.setDataAtualizacao(LocalDateTime.now());
+    }
+
+    private CarrinhoResponseDTO convertToDto(Carrinho carrinho, ItensCompactos itens) {
+        CarrinhoResponseDTO carrinhoDTO = itens.paraDto(cardapioSnapshotService.getSnapshot());
+        carrinhoDTO.setId(carrinho.getId());
+        carrinhoDTO.setUserId(carrinho.getUsuario().getId());
+        carrinhoDTO.setUserName(carrinho.getUsuario().getName());
+        carrinhoDTO.setVersao(carrinho.getVersao());
+        return carrinhoDTO;
+    }
+}
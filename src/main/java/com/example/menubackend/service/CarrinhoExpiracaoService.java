@@ -0,0 +1,153 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.LimpezaCarrinhosResultadoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remove os carrinhos abandonados, sem alteração há mais de app.carrinho.expiracao.dias, junto com seus itens.
+ * Trabalha em lotes pequenos, cada um em uma transação curta, com uma pausa entre eles, para não segurar travas
+ * por muito tempo com a loja aberta. A exclusão confere de novo a data de cada carrinho, então um carrinho
+ * alterado depois de selecionado fica.
+ */
+@Service
+public class CarrinhoExpiracaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarrinhoExpiracaoService.class);
+
+    // Percorre os candidatos pelo ID, para avançar mesmo quando um lote inteiro é poupado
+    private static final String SELECIONAR_SQL =
+            "SELECT id FROM carrinho WHERE data_atualizacao < ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String APAGAR_ITENS_SQL =
+            "DELETE i FROM item_carrinho i JOIN carrinho c ON c.id = i.carrinho_id WHERE c.id IN (%s) AND c.data_atualizacao < ?";
+    private static final String APAGAR_CARRINHOS_SQL =
+            "DELETE FROM carrinho WHERE id IN (%s) AND data_atualizacao < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CarrinhoMemoriaService carrinhoMemoriaService;
+    private final int dias;
+    private final int tamanhoLote;
+    private final long pausaMs;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    public CarrinhoExpiracaoService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    CarrinhoMemoriaService carrinhoMemoriaService,
+                                    @Value("${app.carrinho.expiracao.dias:30}") int dias,
+                                    @Value("${app.carrinho.expiracao.tamanho-lote:500}") int tamanhoLote,
+                                    @Value("${app.carrinho.expiracao.pausa-ms:200}") long pausaMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.carrinhoMemoriaService = carrinhoMemoriaService;
+        this.dias = dias;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.pausaMs = pausaMs;
+    }
+
+    @Scheduled(cron = "${app.carrinho.expiracao.cron:0 15 * * * *}")
+    public void limparAgendado() {
+        try {
+            limpar();
+        } catch (IllegalStateException e) {
+            logger.debug("Limpeza de carrinhos ignorada: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Executa uma limpeza completa e informa quanto foi removido.
+     * Lança IllegalStateException se já houver uma limpeza em andamento.
+     */
+    public LimpezaCarrinhosResultadoDTO limpar() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma limpeza de carrinhos em andamento.");
+        }
+        try {
+            return executar(Timestamp.valueOf(LocalDateTime.now().minusDays(dias)));
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    private LimpezaCarrinhosResultadoDTO executar(Timestamp limite) {
+        long inicio = System.currentTimeMillis();
+        int carrinhos = 0;
+        int itens = 0;
+        int lotes = 0;
+        long ultimoId = 0;
+
+        while (true) {
+            List<Long> candidatos = jdbcTemplate.queryForList(SELECIONAR_SQL, Long.class, limite, ultimoId, tamanhoLote);
+            if (candidatos.isEmpty()) {
+                break;
+            }
+            ultimoId = candidatos.get(candidatos.size() - 1);
+
+            // No modo memória, o carrinho carregado pode ter alterações ainda não gravadas
+            List<Long> ids = new ArrayList<>(candidatos);
+            if (carrinhoMemoriaService.isAtivo()) {
+                Set<Long> emUso = carrinhoMemoriaService.carrinhosEmUso();
+                ids.removeIf(emUso::contains);
+            }
+
+            if (!ids.isEmpty()) {
+                int[] removidos = apagarLote(ids, limite);
+                itens += removidos[0];
+                carrinhos += removidos[1];
+                lotes++;
+            }
+
+            if (candidatos.size() < tamanhoLote || !pausar()) {
+                break;
+            }
+        }
+
+        long duracaoMs = System.currentTimeMillis() - inicio;
+        if (carrinhos > 0) {
+            logger.info("Limpeza de carrinhos abandonados: {} carrinhos e {} itens removidos em {} lotes ({} ms)",
+                    carrinhos, itens, lotes, duracaoMs);
+        }
+        return new LimpezaCarrinhosResultadoDTO(carrinhos, itens, lotes, duracaoMs);
+    }
+
+    // Itens e carrinhos do lote em uma transação curta; retorna {itens, carrinhos} removidos
+    private int[] apagarLote(List<Long> ids, Timestamp limite) {
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> parametros = new ArrayList<>(ids);
+        parametros.add(limite);
+        Object[] args = parametros.toArray();
+
+        return transactionTemplate.execute(status -> new int[]{
+                jdbcTemplate.update(APAGAR_ITENS_SQL.formatted(marcadores), args),
+                jdbcTemplate.update(APAGAR_CARRINHOS_SQL.formatted(marcadores), args)
+        });
+    }
+
+    // Intervalo entre lotes, para dar passagem às requisições da loja; false se a thread foi interrompida
+    private boolean pausar() {
+        if (pausaMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausaMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.ItemCarrinhoResponseDTO;
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Carrinho;
+import com.example.menubackend.model.Dinheiro;
+import com.example.menubackend.model.ItemCarrinho;
+import com.example.menubackend.model.User;
+import com.example.menubackend.repository.CarrinhoRepository;
+import com.example.menubackend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Modo opcional de carrinho em memória com gravação adiada (app.carrinho.modo=memoria).
+ * Os carrinhos em uso ficam em um mapa por usuário, protegidos por travas listradas; cada alteração só marca o
+ * carrinho como pendente, e um agendamento grava os pendentes em lotes JDBC. As gravações são serializadas,
+ * então o estado mais recente de um carrinho é sempre o último a chegar ao banco.
+ * A memória é a fonte da verdade dos carrinhos carregados, o que pressupõe uma única instância da aplicação.
+ * Os IDs de item são reservados aqui a partir do maior ID na inicialização; por isso a migração de layout fica
+ * bloqueada neste modo e os carrinhos compactos precisam ser migrados para LINHAS antes de ativá-lo.
+ */
+@Service
+public class CarrinhoMemoriaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarrinhoMemoriaService.class);
+
+    private static final int QUANTIDADE_TRAVAS = 256; // Potência de 2
+
+    private static final String APAGAR_ITEM_SQL = "DELETE FROM item_carrinho WHERE id = ?";
+    // O ID do item é reservado em memória, então a mesma linha é inserida na primeira gravação e atualizada nas seguintes.
+    // Se o ID já pertencer a um item de outro carrinho (ID reservado colidindo com uma linha criada fora deste
+    // serviço), carrinho_id = NULL faz o comando falhar em vez de sobrescrever o item alheio
+    private static final String GRAVAR_ITEM_SQL =
+            "INSERT INTO item_carrinho (id, carrinho_id, produto_id, quantidade, preco_unitario, versao) VALUES (?, ?, ?, ?, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE carrinho_id = IF(carrinho_id = VALUES(carrinho_id), carrinho_id, NULL), " +
+            "quantidade = VALUES(quantidade), versao = versao + 1";
+    // A versão em memória só vai ao banco se estiver à frente; se não (ex.: migração avançou a do banco), o banco
+    // avança por conta própria. Assim a versão relida depois de um despejo nunca repete uma já vista com outro conteúdo
+    private static final String ATUALIZAR_CARRINHO_SQL =
+            "UPDATE carrinho SET data_atualizacao = ?, versao = GREATEST(versao + 1, ?) WHERE id = ?";
+
+    private final boolean ativo;
+    private final long ociosidadeMs;
+    private final CarrinhoRepository carrinhoRepository;
+    private final UserRepository userRepository;
+    private final CardapioSnapshotService cardapioSnapshotService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, CarrinhoEmMemoria> carrinhos = new ConcurrentHashMap<>();
+    private final ReentrantLock[] travas = new ReentrantLock[QUANTIDADE_TRAVAS];
+    private final ReentrantLock gravacao = new ReentrantLock(); // Uma gravação por vez, na ordem em que foram capturadas
+    private final AtomicLong ultimoIdItem = new AtomicLong();
+
+    public CarrinhoMemoriaService(CarrinhoRepository carrinhoRepository, UserRepository userRepository,
+                                  CardapioSnapshotService cardapioSnapshotService, JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.carrinho.modo:banco}") String modo,
+                                  @Value("${app.carrinho.memoria.ociosidade-minutos:30}") long ociosidadeMinutos) {
+        this.carrinhoRepository = carrinhoRepository;
+        this.userRepository = userRepository;
+        this.cardapioSnapshotService = cardapioSnapshotService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Também roda depois do commit da finalização do pedido, quando a transação original ainda está vinculada
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ativo = "memoria".equalsIgnoreCase(modo.trim());
+        this.ociosidadeMs = ociosidadeMinutos * 60_000L;
+        for (int i = 0; i < travas.length; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (ativo) {
+            // Este modo só lê item_carrinho: carrinhos ainda no layout compacto apareceriam vazios
+            Long compactos = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM carrinho WHERE itens_compactos IS NOT NULL", Long.class);
+            if (compactos != null && compactos > 0) {
+                throw new IllegalStateException(compactos + " carrinhos ainda estão no layout compacto. Antes de ativar "
+                        + "app.carrinho.modo=memoria, migre-os com POST /api/admin/carrinhos/migracao?destino=linhas.");
+            }
+            Long maiorId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM item_carrinho", Long.class);
+            ultimoIdItem.set(maiorId == null ? 0 : maiorId);
+            logger.info("Carrinhos em memória com gravação adiada ativados");
+        }
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    // IDs (no banco) dos carrinhos carregados em memória, cujo data_atualizacao pode estar atrás do estado real
+    public Set<Long> carrinhosEmUso() {
+        Set<Long> ids = new HashSet<>();
+        for (CarrinhoEmMemoria carrinho : carrinhos.values()) {
+            ids.add(carrinho.carrinhoId);
+        }
+        return ids;
+    }
+
+    public CarrinhoResponseDTO obter(Long userId, boolean criar) {
+        return executar(userId, criar, this::convertToDto);
+    }
+
+    public AlteracaoCarrinho adicionar(Long userId, Long produtoId, int quantidade) {
+        ProdutoDTO produto = buscarProduto(cardapioSnapshotService.getSnapshot(), produtoId);
+        return alterar(userId, carrinho -> carrinho.adicionar(produto, quantidade, ultimoIdItem));
+    }
+
+    public AlteracaoCarrinho atualizar(Long userId, Long itemId, int quantidade) {
+        return alterar(userId, carrinho -> carrinho.atualizar(carrinho.buscar(itemId), quantidade));
+    }
+
+    public AlteracaoCarrinho remover(Long userId, Long itemId) {
+        return alterar(userId, carrinho -> carrinho.remover(carrinho.buscar(itemId)));
+    }
+
+    // Lote já validado pelo CarrinhoService; se uma operação falhar, o carrinho volta ao estado anterior ao lote
+    public AlteracaoCarrinho aplicarOperacoes(Long userId, List<OperacaoCarrinhoDTO> operacoes) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        return alterar(userId, carrinho -> {
+            Map<Long, ItemEmMemoria> itensAntes = new LinkedHashMap<>(carrinho.itens);
+            Map<ItemEmMemoria, Integer> quantidadesAntes = new HashMap<>();
+            itensAntes.values().forEach(item -> quantidadesAntes.put(item, item.quantidade));
+            int removidosAntes = carrinho.removidos.size();
+
+            for (int i = 0; i < operacoes.size(); i++) {
+                OperacaoCarrinhoDTO operacao = operacoes.get(i);
+                try {
+                    switch (operacao.getTipo()) {
+                        case ADICIONAR -> carrinho.adicionar(buscarProduto(snapshot, operacao.getProdutoId()),
+                                operacao.getQuantidade(), ultimoIdItem);
+                        case ATUALIZAR -> carrinho.atualizar(carrinho.localizar(operacao), operacao.getQuantidade());
+                        case REMOVER -> carrinho.remover(carrinho.localizar(operacao));
+                    }
+                } catch (RuntimeException e) {
+                    carrinho.itens.clear();
+                    carrinho.itens.putAll(itensAntes);
+                    quantidadesAntes.forEach((item, quantidade) -> item.quantidade = quantidade);
+                    carrinho.removidos.subList(removidosAntes, carrinho.removidos.size()).clear();
+                    throw new RuntimeException("Operação " + (i + 1) + ": " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    public void limpar(Long userId) {
+        executar(userId, false, carrinho -> {
+            for (ItemEmMemoria item : List.copyOf(carrinho.itens.values())) {
+                carrinho.remover(item);
+            }
+            carrinho.alterado();
+            return null;
+        });
+    }
+
+    public List<LinhaCarrinho> linhas(Long userId) {
+        return executar(userId, false, carrinho -> carrinho.itens.values().stream()
+                .map(item -> new LinhaCarrinho(item.id, item.produtoId, item.quantidade, item.precoUnitario))
+                .toList());
+    }
+
+    /**
+     * Retira do carrinho as quantidades que viraram pedido, só depois do commit da transação do pedido, e grava
+     * o carrinho na hora. Itens incluídos ou aumentados durante a finalização continuam no carrinho.
+     */
+    public void removerLinhasPedidas(Long userId, List<LinhaCarrinho> linhas) {
+        Runnable aplicar = () -> {
+            CarrinhoEmMemoria alterado = executar(userId, false, carrinho -> {
+                for (LinhaCarrinho linha : linhas) {
+                    ItemEmMemoria item = carrinho.itens.get(linha.produtoId());
+                    if (item != null && item.id == linha.itemId()) {
+                        item.quantidade -= linha.quantidade();
+                        if (item.quantidade <= 0) {
+                            carrinho.remover(item);
+                        }
+                    }
+                }
+                carrinho.alterado();
+                return carrinho;
+            });
+            gravar(List.of(alterado));
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar.run();
+                }
+            });
+        } else {
+            aplicar.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.carrinho.memoria.intervalo-gravacao-ms:2000}")
+    public void gravarPendentes() {
+        if (!ativo) {
+            return;
+        }
+        gravacao.lock();
+        try {
+            gravar(carrinhos.values());
+            despejarOciosos();
+        } finally {
+            gravacao.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (ativo) {
+            gravar(carrinhos.values());
+        }
+    }
+
+    // Aplica a alteração sob a trava do usuário, guardando versão e quantidades de antes para a resposta em delta
+    private AlteracaoCarrinho alterar(Long userId, Consumer<CarrinhoEmMemoria> alteracao) {
+        return executar(userId, false, carrinho -> {
+            long versaoAnterior = carrinho.versao;
+            Map<Long, Integer> antes = new HashMap<>();
+            carrinho.itens.values().forEach(item -> antes.put(item.id, item.quantidade));
+            alteracao.accept(carrinho);
+            carrinho.alterado();
+            return new AlteracaoCarrinho(convertToDto(carrinho), versaoAnterior, antes);
+        });
+    }
+
+    // Roda a operação com a trava do usuário, carregando o carrinho do banco se ainda não estiver em memória
+    private <T> T executar(Long userId, boolean criar, Function<CarrinhoEmMemoria, T> operacao) {
+        ReentrantLock trava = trava(userId);
+        trava.lock();
+        try {
+            CarrinhoEmMemoria carrinho = carrinhos.get(userId);
+            if (carrinho == null) {
+                carrinho = carregar(userId, criar);
+                carrinhos.put(userId, carrinho);
+            }
+            carrinho.ultimoAcesso = System.currentTimeMillis();
+            return operacao.apply(carrinho);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private CarrinhoEmMemoria carregar(Long userId, boolean criar) {
+        Carrinho carrinho = carrinhoRepository.findCompletoByUsuarioId(userId)
+                .orElseGet(() -> {
+                    if (!criar) {
+                        throw new RuntimeException("Carrinho não encontrado para o usuário: " + userId);
+                    }
+                    User user = userRepository.findById(userId)
+                            .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+                    Carrinho newCarrinho = new Carrinho();
+                    newCarrinho.setUsuario(user);
+                    newCarrinho.setDataCriacao(LocalDateTime.now());
+                    newCarrinho.setDataAtualizacao(LocalDateTime.now());
+                    return carrinhoRepository.save(newCarrinho);
+                });
+
+        CarrinhoEmMemoria emMemoria = new CarrinhoEmMemoria(carrinho.getId(), userId, carrinho.getUsuario().getName());
+        emMemoria.dataAtualizacao = carrinho.getDataAtualizacao();
+        emMemoria.versao = carrinho.getVersao();
+        for (ItemCarrinho item : carrinho.getItens()) {
+            ItemEmMemoria itemEmMemoria = new ItemEmMemoria(item.getId(), item.getProduto().getId(), item.getPrecoUnitario());
+            itemEmMemoria.quantidade = item.getQuantidade();
+            emMemoria.itens.put(itemEmMemoria.produtoId, itemEmMemoria);
+        }
+        return emMemoria;
+    }
+
+    /**
+     * Captura o estado dos carrinhos pendentes (cada um sob sua trava) e grava tudo em uma transação.
+     * Se o lote falhar, tenta carrinho a carrinho; os que ainda falharem voltam a ficar pendentes.
+     */
+    private void gravar(Collection<CarrinhoEmMemoria> candidatos) {
+        gravacao.lock();
+        try {
+            List<Pendencia> pendencias = capturar(candidatos);
+            if (pendencias.isEmpty()) {
+                return;
+            }
+            try {
+                escrever(pendencias);
+            } catch (RuntimeException e) {
+                logger.warn("Falha ao gravar {} carrinhos em lote, tentando um a um: {}", pendencias.size(), e.getMessage());
+                for (Pendencia pendencia : pendencias) {
+                    try {
+                        escrever(List.of(pendencia));
+                    } catch (RuntimeException erro) {
+                        logger.error("Falha ao gravar o carrinho {}; nova tentativa na próxima gravação",
+                                pendencia.carrinho().carrinhoId, erro);
+                        devolver(pendencia);
+                    }
+                }
+            }
+        } finally {
+            gravacao.unlock();
+        }
+    }
+
+    private List<Pendencia> capturar(Collection<CarrinhoEmMemoria> candidatos) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        List<Pendencia> pendencias = new ArrayList<>();
+        for (CarrinhoEmMemoria carrinho : candidatos) {
+            ReentrantLock trava = trava(carrinho.userId);
+            trava.lock();
+            try {
+                if (!carrinho.sujo) {
+                    continue;
+                }
+                // Produto excluído do catálogo depois de entrar no carrinho: a linha violaria a chave estrangeira
+                for (Iterator<ItemEmMemoria> it = carrinho.itens.values().iterator(); it.hasNext(); ) {
+                    ItemEmMemoria item = it.next();
+                    if (snapshot.getProduto(item.produtoId) == null) {
+                        it.remove();
+                        carrinho.removidos.add(item.id);
+                    }
+                }
+                List<Object[]> itens = new ArrayList<>(carrinho.itens.size());
+                for (ItemEmMemoria item : carrinho.itens.values()) {
+                    itens.add(new Object[]{item.id, carrinho.carrinhoId, item.produtoId, item.quantidade, item.precoUnitario.centavos()});
+                }
+                Timestamp dataAtualizacao = carrinho.dataAtualizacao == null ? null : Timestamp.valueOf(carrinho.dataAtualizacao);
+                pendencias.add(new Pendencia(carrinho, List.copyOf(carrinho.removidos), itens,
+                        new Object[]{dataAtualizacao, carrinho.versao, carrinho.carrinhoId}));
+                carrinho.removidos.clear();
+                carrinho.sujo = false;
+            } finally {
+                trava.unlock();
+            }
+        }
+        return pendencias;
+    }
+
+    private void escrever(List<Pendencia> pendencias) {
+        List<Object[]> apagar = new ArrayList<>();
+        List<Object[]> itens = new ArrayList<>();
+        List<Object[]> carrinhosAlterados = new ArrayList<>(pendencias.size());
+        for (Pendencia pendencia : pendencias) {
+            pendencia.removidos().forEach(id -> apagar.add(new Object[]{id}));
+            itens.addAll(pendencia.itens());
+            carrinhosAlterados.add(pendencia.carrinhoArgs());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!apagar.isEmpty()) {
+                jdbcTemplate.batchUpdate(APAGAR_ITEM_SQL, apagar);
+            }
+            if (!itens.isEmpty()) {
+                jdbcTemplate.batchUpdate(GRAVAR_ITEM_SQL, itens);
+            }
+            jdbcTemplate.batchUpdate(ATUALIZAR_CARRINHO_SQL, carrinhosAlterados);
+        });
+    }
+
+    // Gravação falhou: o carrinho volta a ficar pendente e as exclusões capturadas são refeitas na próxima vez
+    private void devolver(Pendencia pendencia) {
+        CarrinhoEmMemoria carrinho = pendencia.carrinho();
+        ReentrantLock trava = trava(carrinho.userId);
+        trava.lock();
+        try {
+            carrinho.removidos.addAll(pendencia.removidos());
+            carrinho.sujo = true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // Tira da memória os carrinhos já gravados e sem uso recente; roda sob a trava de gravação
+    private void despejarOciosos() {
+        long limite = System.currentTimeMillis() - ociosidadeMs;
+        for (CarrinhoEmMemoria carrinho : carrinhos.values()) {
+            if (carrinho.ultimoAcesso >= limite) {
+                continue;
+            }
+            ReentrantLock trava = trava(carrinho.userId);
+            trava.lock();
+            try {
+                if (!carrinho.sujo && carrinho.ultimoAcesso < limite) {
+                    carrinhos.remove(carrinho.userId, carrinho);
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    private static ProdutoDTO buscarProduto(CardapioSnapshot snapshot, Long produtoId) {
+        ProdutoDTO produto = snapshot.getProduto(produtoId);
+        if (produto == null) {
+            throw new RuntimeException("Produto não encontrado com ID: " + produtoId);
+        }
+        if (!Boolean.TRUE.equals(produto.getDisponibilidade())) {
+            throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
+        }
+        return produto;
+    }
+
+    private ReentrantLock trava(Long userId) {
+        return travas[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (QUANTIDADE_TRAVAS - 1)];
+    }
+
+    private CarrinhoResponseDTO convertToDto(CarrinhoEmMemoria carrinho) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        CarrinhoResponseDTO carrinhoDTO = new CarrinhoResponseDTO();
+        carrinhoDTO.setId(carrinho.carrinhoId);
+        carrinhoDTO.setUserId(carrinho.userId);
+        carrinhoDTO.setUserName(carrinho.userName);
+
+        List<ItemCarrinhoResponseDTO> itemDTOs = new ArrayList<>(carrinho.itens.size());
+        long valorTotal = 0;
+        for (ItemEmMemoria item : carrinho.itens.values()) {
+            ProdutoDTO produto = snapshot.getProduto(item.produtoId);
+            ItemCarrinhoResponseDTO itemCarrinhoDTO = new ItemCarrinhoResponseDTO();
+            itemCarrinhoDTO.setId(item.id);
+            itemCarrinhoDTO.setProdutoId(item.produtoId);
+            itemCarrinhoDTO.setNomeProduto(produto == null ? null : produto.getNome());
+            itemCarrinhoDTO.setImagemProduto(produto == null ? null : produto.getImagem());
+            itemCarrinhoDTO.setQuantidade(item.quantidade);
+            itemCarrinhoDTO.setPrecoUnitario(item.precoUnitario);
+            itemCarrinhoDTO.setSubtotal(item.precoUnitario.vezes(item.quantidade));
+            valorTotal = Math.addExact(valorTotal, itemCarrinhoDTO.getSubtotal().centavos());
+            itemDTOs.add(itemCarrinhoDTO);
+        }
+        carrinhoDTO.setItens(itemDTOs);
+        carrinhoDTO.setValorTotal(Dinheiro.deCentavos(valorTotal));
+        carrinhoDTO.setVersao(carrinho.versao);
+        return carrinhoDTO;
+    }
+
+    // Estado capturado de um carrinho pendente, pronto para os lotes JDBC
+    private record Pendencia(CarrinhoEmMemoria carrinho, List<Long> removidos, List<Object[]> itens, Object[] carrinhoArgs) {
+    }
+
+    // Só é lido ou alterado sob a trava do usuário (exceto ultimoAcesso, consultado pelo despejo)
+    private static final class CarrinhoEmMemoria {
+        private final Long carrinhoId;
+        private final Long userId;
+        private final String userName;
+        private final Map<Long, ItemEmMemoria> itens = new LinkedHashMap<>(); // Por ID do produto
+        private final List<Long> removidos = new ArrayList<>(); // Itens a apagar do banco na próxima gravação
+        private LocalDateTime dataAtualizacao;
+        private long versao; // Começa na do banco e avança a cada alteração em memória
+        private boolean sujo;
+        private volatile long ultimoAcesso;
+
+        private CarrinhoEmMemoria(Long carrinhoId, Long userId, String userName) {
+            this.carrinhoId = carrinhoId;
+            this.userId = userId;
+            this.userName = userName;
+        }
+
+        private ItemEmMemoria buscar(Long itemId) {
+            for (ItemEmMemoria item : itens.values()) {
+                if (itemId != null && item.id == itemId) {
+                    return item;
+                }
+            }
+            throw new RuntimeException("Item do carrinho não encontrado com ID: " + itemId);
+        }
+
+        // Item de uma operação do lote, pelo ID do item ou pelo produto
+        private ItemEmMemoria localizar(OperacaoCarrinhoDTO operacao) {
+            if (operacao.getItemId() != null) {
+                return buscar(operacao.getItemId());
+            }
+            ItemEmMemoria item = itens.get(operacao.getProdutoId());
+            if (item == null) {
+                throw new RuntimeException("Produto não está no carrinho: " + operacao.getProdutoId());
+            }
+            return item;
+        }
+
+        private void adicionar(ProdutoDTO produto, int quantidade, AtomicLong ultimoIdItem) {
+            ItemEmMemoria item = itens.get(produto.getId());
+            if (item == null) {
+                if (quantidade <= 0) {
+                    return;
+                }
+                item = new ItemEmMemoria(ultimoIdItem.incrementAndGet(), produto.getId(), produto.getPreco());
+                itens.put(item.produtoId, item);
+            }
+            atualizar(item, item.quantidade + quantidade);
+        }
+
+        private void atualizar(ItemEmMemoria item, int quantidade) {
+            item.quantidade = quantidade;
+            if (item.quantidade <= 0) {
+                remover(item);
+            }
+        }
+
+        private void remover(ItemEmMemoria item) {
+            itens.remove(item.produtoId);
+            removidos.add(item.id);
+        }
+
+        private void alterado() {
+            dataAtualizacao = LocalDateTime.now();
+            versao++;
+            sujo = true;
+        }
+    }
+
+    private static final class ItemEmMemoria {
+        private final long id;
+        private final long produtoId;
+        private final Dinheiro precoUnitario;
+        private int quantidade;
+
+        private ItemEmMemoria(long id, long produtoId, Dinheiro precoUnitario) {
+            this.id = id;
+            this.produtoId = produtoId;
+            this.precoUnitario = precoUnitario;
+        }
+    }
+}
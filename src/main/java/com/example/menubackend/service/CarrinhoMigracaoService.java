@@ -0,0 +1,219 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.MigracaoCarrinhosResultadoDTO;
+import com.example.menubackend.model.Dinheiro;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Converte os carrinhos já gravados entre os dois layouts: LINHAS (uma linha de item_carrinho por item, usado
+ * pelos modos banco e memoria) e COMPACTO (itens serializados em carrinho.itens_compactos, modo compacto).
+ * Roda em lotes, cada um em uma transação curta que trava as linhas dos carrinhos do lote e avança a versão deles,
+ * para que alterações concorrentes sejam refeitas.
+ *
+ * Cada destino só roda no modo que lê esse layout, para que nenhum carrinho convertido pareça vazio enquanto
+ * a aplicação está no ar: COMPACTO só com app.carrinho.modo=compacto (que também converte as linhas restantes
+ * na primeira alteração) e LINHAS só com app.carrinho.modo=banco. Ao iniciar no modo banco, os carrinhos que
+ * ainda estiverem no layout compacto são convertidos antes de a aplicação receber requisições.
+ * Não roda com app.carrinho.modo=memoria: esse modo reserva os IDs de item em memória, e as linhas criadas aqui
+ * colidiriam com eles; ele também não inicia enquanto houver carrinhos compactos.
+ */
+@Service
+public class CarrinhoMigracaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarrinhoMigracaoService.class);
+
+    public enum Destino { COMPACTO, LINHAS }
+
+    // Para COMPACTO: carrinhos que ainda têm linhas de item
+    private static final String SELECIONAR_COM_LINHAS_SQL =
+            "SELECT DISTINCT carrinho_id FROM item_carrinho WHERE carrinho_id > ? ORDER BY carrinho_id LIMIT ?";
+    private static final String TRAVAR_CARRINHOS_SQL =
+            "SELECT id, itens_compactos FROM carrinho WHERE id IN (%s) FOR UPDATE";
+    private static final String LER_LINHAS_SQL =
+            "SELECT id, carrinho_id, produto_id, quantidade, preco_unitario FROM item_carrinho WHERE carrinho_id IN (%s) ORDER BY id";
+    private static final String GRAVAR_COMPACTO_SQL =
+            "UPDATE carrinho SET itens_compactos = ?, versao = versao + 1 WHERE id = ?";
+    private static final String APAGAR_LINHAS_SQL = "DELETE FROM item_carrinho WHERE carrinho_id IN (%s)";
+
+    // Para LINHAS: carrinhos com a coluna preenchida; itens de produtos já excluídos do catálogo ficam de fora
+    private static final String SELECIONAR_COMPACTOS_SQL =
+            "SELECT id FROM carrinho WHERE itens_compactos IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String INSERIR_LINHA_SQL =
+            "INSERT INTO item_carrinho (carrinho_id, produto_id, quantidade, preco_unitario, versao) " +
+            "SELECT ?, p.id, ?, ?, 0 FROM produto p WHERE p.id = ? " +
+            "ON DUPLICATE KEY UPDATE quantidade = quantidade + VALUES(quantidade), versao = versao + 1";
+    private static final String LIMPAR_COMPACTO_SQL =
+            "UPDATE carrinho SET itens_compactos = NULL, versao = versao + 1 WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CarrinhoMemoriaService carrinhoMemoriaService;
+    private final CarrinhoCompactoService carrinhoCompactoService;
+    private final int tamanhoLote;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    public CarrinhoMigracaoService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   CarrinhoMemoriaService carrinhoMemoriaService,
+                                   CarrinhoCompactoService carrinhoCompactoService,
+                                   @Value("${app.carrinho.migracao.tamanho-lote:200}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.carrinhoMemoriaService = carrinhoMemoriaService;
+        this.carrinhoCompactoService = carrinhoCompactoService;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+    }
+
+    // O modo banco só lê item_carrinho: carrinhos deixados no layout compacto (ex.: ao sair do modo compacto)
+    // são convertidos na inicialização, antes de o servidor aceitar conexões
+    @PostConstruct
+    public void converterCompactosNoModoBanco() {
+        if (carrinhoMemoriaService.isAtivo() || carrinhoCompactoService.isAtivo()) {
+            return;
+        }
+        Long compactos = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM carrinho WHERE itens_compactos IS NOT NULL", Long.class);
+        if (compactos != null && compactos > 0) {
+            logger.info("{} carrinhos no layout compacto serão convertidos para o modo banco", compactos);
+            migrar(Destino.LINHAS);
+        }
+    }
+
+    public static Destino destino(String valor) {
+        try {
+            return Destino.valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Destino inválido: " + valor + ". Use COMPACTO ou LINHAS.");
+        }
+    }
+
+    /**
+     * Migra todos os carrinhos para o layout de destino e informa quanto foi convertido.
+     * Lança IllegalStateException se já houver uma migração em andamento ou se o modo atual não ler o layout
+     * de destino (COMPACTO exige o modo compacto; LINHAS, o modo banco).
+     */
+    public MigracaoCarrinhosResultadoDTO migrar(Destino destino) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            throw new IllegalStateException("A migração de carrinhos não pode rodar com app.carrinho.modo=memoria. "
+                    + "Migre no modo banco, antes de ativar o modo memoria.");
+        }
+        if (destino == Destino.COMPACTO && !carrinhoCompactoService.isAtivo()) {
+            throw new IllegalStateException("A migração para COMPACTO só roda com app.carrinho.modo=compacto: "
+                    + "nos outros modos os carrinhos convertidos apareceriam vazios.");
+        }
+        if (destino == Destino.LINHAS && carrinhoCompactoService.isAtivo()) {
+            throw new IllegalStateException("A migração para LINHAS não roda com app.carrinho.modo=compacto. "
+                    + "Troque para o modo banco: ao iniciar, ele converte os carrinhos compactos.");
+        }
+        if (!emExecucao.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma migração de carrinhos em andamento.");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            int carrinhos = 0;
+            int itens = 0;
+            int lotes = 0;
+            long ultimoId = 0;
+            String selecionar = destino == Destino.COMPACTO ? SELECIONAR_COM_LINHAS_SQL : SELECIONAR_COMPACTOS_SQL;
+
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(selecionar, Long.class, ultimoId, tamanhoLote);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                ultimoId = ids.get(ids.size() - 1);
+                int[] migrados = transactionTemplate.execute(status ->
+                        destino == Destino.COMPACTO ? paraCompacto(ids) : paraLinhas(ids));
+                carrinhos += migrados[0];
+                itens += migrados[1];
+                lotes++;
+                if (ids.size() < tamanhoLote) {
+                    break;
+                }
+            }
+
+            long duracaoMs = System.currentTimeMillis() - inicio;
+            logger.info("Migração de carrinhos para {}: {} carrinhos e {} itens em {} lotes ({} ms)",
+                    destino, carrinhos, itens, lotes, duracaoMs);
+            return new MigracaoCarrinhosResultadoDTO(destino.name(), carrinhos, itens, lotes, duracaoMs);
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    // Junta as linhas de cada carrinho à coluna (somando com o que já estiver nela) e apaga as linhas;
+    // retorna {carrinhos, itens} migrados
+    private int[] paraCompacto(List<Long> ids) {
+        String marcadores = marcadores(ids.size());
+        Object[] args = ids.toArray();
+
+        Map<Long, ItensCompactos> porCarrinho = new HashMap<>();
+        jdbcTemplate.query(TRAVAR_CARRINHOS_SQL.formatted(marcadores), rs -> {
+            porCarrinho.put(rs.getLong("id"), ItensCompactos.decodificar(rs.getBytes("itens_compactos")));
+        }, args);
+
+        int[] itens = {0};
+        jdbcTemplate.query(LER_LINHAS_SQL.formatted(marcadores), rs -> {
+            ItensCompactos compactos = porCarrinho.get(rs.getLong("carrinho_id"));
+            if (compactos != null) {
+                compactos.incluir(rs.getLong("id"), rs.getLong("produto_id"), rs.getInt("quantidade"),
+                        Dinheiro.deCentavos(rs.getLong("preco_unitario")));
+                itens[0]++;
+            }
+        }, args);
+
+        List<Object[]> gravacoes = new ArrayList<>(porCarrinho.size());
+        porCarrinho.forEach((carrinhoId, compactos) -> gravacoes.add(new Object[]{compactos.codificar(), carrinhoId}));
+        jdbcTemplate.batchUpdate(GRAVAR_COMPACTO_SQL, gravacoes);
+        jdbcTemplate.update(APAGAR_LINHAS_SQL.formatted(marcadores), args);
+        return new int[]{porCarrinho.size(), itens[0]};
+    }
+
+    // Recria as linhas de item a partir da coluna (os IDs dos itens são novos) e esvazia a coluna
+    private int[] paraLinhas(List<Long> ids) {
+        String marcadores = marcadores(ids.size());
+        Object[] args = ids.toArray();
+
+        List<Object[]> linhas = new ArrayList<>();
+        List<Long> migrados = new ArrayList<>(ids.size());
+        jdbcTemplate.query(TRAVAR_CARRINHOS_SQL.formatted(marcadores), rs -> {
+            byte[] dados = rs.getBytes("itens_compactos");
+            if (dados == null) {
+                return; // Já convertido por outra via depois de selecionado
+            }
+            long carrinhoId = rs.getLong("id");
+            for (ItensCompactos.Item item : ItensCompactos.decodificar(dados).itens()) {
+                linhas.add(new Object[]{carrinhoId, item.quantidade, item.precoUnitario.centavos(), item.produtoId});
+            }
+            migrados.add(carrinhoId);
+        }, args);
+
+        if (migrados.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        if (!linhas.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERIR_LINHA_SQL, linhas);
+        }
+        jdbcTemplate.update(LIMPAR_COMPACTO_SQL.formatted(marcadores(migrados.size())), migrados.toArray());
+        return new int[]{migrados.size(), linhas.size()};
+    }
+
+    private static String marcadores(int quantidade) {
+        return String.join(", ", Collections.nCopies(quantidade, "?"));
+    }
+}
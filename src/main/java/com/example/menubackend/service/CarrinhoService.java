@@ -1,10 +1,15 @@
 package com.example.menubackend.service;
 
+import com.example.menubackend.dto.CarrinhoDeltaDTO;
+import com.example.menubackend.dto.CarrinhoLoteDTO;
 import com.example.menubackend.dto.CarrinhoResponseDTO;
 import com.example.menubackend.dto.ItemCarrinhoAddDTO;
 import com.example.menubackend.dto.ItemCarrinhoResponseDTO;
+import com.example.menubackend.dto.ItemCarrinhoSomado;
 import com.example.menubackend.dto.ItemCarrinhoUpdateDTO;
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
 import com.example.menubackend.model.Carrinho;
+import com.example.menubackend.model.Dinheiro;
 import com.example.menubackend.model.ItemCarrinho;
 import com.example.menubackend.model.Produto;
 import com.example.menubackend.model.User;
@@ -13,13 +18,16 @@ import com.example.menubackend.repository.ItemCarrinhoRepository;
 import com.example.menubackend.repository.ProdutoRepository;
 import com.example.menubackend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,131 +45,427 @@ public class CarrinhoService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CarrinhoMemoriaService carrinhoMemoriaService; // Usado no lugar do banco quando app.carrinho.modo=memoria
+
+    @Autowired
+    private CarrinhoCompactoService carrinhoCompactoService; // Itens serializados na linha do carrinho quando app.carrinho.modo=compacto
+
+    @Autowired
+    private CarrinhoVisitanteService carrinhoVisitanteService;
+
+    @Autowired
+    private RetentativaTransacaoService retentativaTransacaoService;
+
+    @Value("${app.carrinho.lote.maximo-operacoes:100}")
+    private int maximoOperacoesLote;
+
     // Obter ou criar o carrinho para um usuário
     public CarrinhoResponseDTO getOrCreateCarrinho(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.obter(userId, true);
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.obter(userId, true);
+        }
+        // Duas requisições simultâneas podem tentar criar o carrinho: a perdedora viola a chave única de user_id
+        // e, na nova tentativa, encontra o carrinho criado pela outra
+        return retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carrinhoRepository.findCompletoByUsuarioId(userId)
+                    .orElseGet(() -> {
+                        User user = userRepository.findById(userId)
+                                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+                        Carrinho newCarrinho = new Carrinho();
+                        newCarrinho.setUsuario(user);
+                        newCarrinho.setDataCriacao(LocalDateTime.now());
+                        newCarrinho.setDataAtualizacao(LocalDateTime.now());
+                        // O valorTotal não é mais inicializado aqui na ENTIDADE, pois foi removido dela.
+                        return carrinhoRepository.save(newCarrinho);
+                    });
+
+            return convertToDto(carrinho);
+        });
+    }
 
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseGet(() -> {
-                    Carrinho newCarrinho = new Carrinho();
-                    newCarrinho.setUsuario(user);
-                    newCarrinho.setDataCriacao(LocalDateTime.now());
-                    newCarrinho.setDataAtualizacao(LocalDateTime.now());
-                    // O valorTotal não é mais inicializado aqui na ENTIDADE, pois foi removido dela.
-                    return carrinhoRepository.save(newCarrinho);
-                });
+    // As alterações retornam AlteracaoCarrinho: o carrinho completo, com a nova versão, e o estado anterior,
+    // para o controller responder só com o que mudou quando o cliente informa a versão que tem.
 
-        return convertToDto(carrinho);
+    // A inclusão soma a quantidade com um comando atômico no banco (sem ler-e-depois-gravar), então toques
+    // simultâneos em "adicionar" nunca perdem incremento nem duplicam a linha do item. versaoCliente é a versão
+    // que o cliente informou (pode ser nula): se a resposta for o delta, o carrinho completo nem é lido.
+    public AlteracaoCarrinho addItemToCarrinho(Long userId, ItemCarrinhoAddDTO itemDto, Long versaoCliente) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.adicionar(userId, itemDto.getProdutoId(), itemDto.getQuantidade());
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.adicionar(userId, itemDto.getProdutoId(), itemDto.getQuantidade());
+        }
+        return retentativaTransacaoService.executar(() -> {
+            Produto produto = produtoRepository.findById(itemDto.getProdutoId())
+                    .orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + itemDto.getProdutoId()));
+
+            if (!produto.getDisponibilidade()) {
+                throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
+            }
+
+            if (carrinhoRepository.registrarAlteracao(userId, LocalDateTime.now()) == 0) {
+                throw new RuntimeException("Carrinho não encontrado para o usuário: " + userId);
+            }
+            if (itemDto.getQuantidade() > 0) {
+                itemCarrinhoRepository.somarOuInserir(userId, produto.getId(), itemDto.getQuantidade(), produto.getPreco().centavos());
+            } else {
+                itemCarrinhoRepository.somarQuantidade(userId, produto.getId(), itemDto.getQuantidade());
+                itemCarrinhoRepository.apagarZerados(userId);
+            }
+
+            // O resultado da soma só existe no banco. registrarAlteracao avançou a versão em exatamente um (a linha
+            // fica travada até o commit) e as demais linhas não mudaram: para o cliente que tem a versão anterior,
+            // basta reler a linha do produto, com a versão e o novo total.
+            Optional<ItemCarrinhoSomado> somado = itemCarrinhoRepository.findSomadoByUsuarioIdAndProdutoId(userId, produto.getId());
+            if (somado.isPresent() && Long.valueOf(somado.get().getVersaoCarrinho() - 1).equals(versaoCliente)) {
+                return AlteracaoCarrinho.soDelta(delta(somado.get(), produto));
+            }
+
+            // Sem delta: relê o carrinho inteiro em uma consulta. A linha do produto vai como alterada; se ela saiu
+            // do carrinho, o ID dela não é mais conhecido e a resposta é o carrinho completo.
+            Carrinho carrinho = carregarCarrinho(userId);
+            Map<Long, Integer> antes = quantidades(carrinho);
+            Optional<ItemCarrinho> linha = carrinho.getItens().stream()
+                    .filter(item -> item.getProduto().getId().equals(produto.getId()))
+                    .findFirst();
+            linha.ifPresent(item -> antes.remove(item.getId()));
+            return new AlteracaoCarrinho(convertToDto(carrinho), carrinho.getVersao() - 1, linha.isPresent() ? antes : null);
+        });
     }
 
-    @Transactional
-    public CarrinhoResponseDTO addItemToCarrinho(Long userId, ItemCarrinhoAddDTO itemDto) {
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    // As alterações abaixo trabalham sobre o carrinho carregado por inteiro em uma consulta (findCompletoByUsuarioId)
+    // e montam a resposta a partir dele, sem reler o carrinho do banco ao final. Carrinho e itens têm @Version:
+    // se outra requisição alterar o carrinho no meio do caminho, o commit falha e a operação é refeita.
 
-        Produto produto = produtoRepository.findById(itemDto.getProdutoId())
-                .orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + itemDto.getProdutoId()));
+    public AlteracaoCarrinho updateItemQuantity(Long userId, Long itemId, ItemCarrinhoUpdateDTO updateDto) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.atualizar(userId, itemId, updateDto.getQuantidade());
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.atualizar(userId, itemId, updateDto.getQuantidade());
+        }
+        return retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carregarCarrinho(userId);
+            Long versaoAnterior = carrinho.getVersao();
+            Map<Long, Integer> antes = quantidades(carrinho);
+            atualizarItem(carrinho, buscarItem(carrinho, itemId), updateDto.getQuantidade());
+
+            carrinho.setDataAtualizacao(LocalDateTime.now());
+            return concluir(carrinho, versaoAnterior, antes);
+        });
+    }
 
-        if (!produto.getDisponibilidade()) {
-            throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
+    public AlteracaoCarrinho removeItemFromCarrinho(Long userId, Long itemId) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.remover(userId, itemId);
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.remover(userId, itemId);
         }
+        return retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carregarCarrinho(userId);
+            Long versaoAnterior = carrinho.getVersao();
+            Map<Long, Integer> antes = quantidades(carrinho);
+            ItemCarrinho itemCarrinho = buscarItem(carrinho, itemId);
+
+            removerItem(carrinho, itemCarrinho);
+            carrinho.setDataAtualizacao(LocalDateTime.now());
+            return concluir(carrinho, versaoAnterior, antes);
+        });
+    }
 
-        Optional<ItemCarrinho> existingItem = itemCarrinhoRepository.findByCarrinhoIdAndProdutoId(carrinho.getId(), produto.getId());
+    /**
+     * Aplica em ordem uma lista de inclusões, alterações e remoções em uma única transação, com uma consulta
+     * para o carrinho e uma para todos os produtos incluídos. Se alguma operação falhar, nenhuma é aplicada.
+     */
+    public AlteracaoCarrinho aplicarOperacoes(Long userId, CarrinhoLoteDTO loteDto) {
+        return aplicarValidadas(userId, validarLote(loteDto));
+    }
 
-        ItemCarrinho itemCarrinho;
-        if (existingItem.isPresent()) {
-            itemCarrinho = existingItem.get();
-            itemCarrinho.setQuantidade(itemCarrinho.getQuantidade() + itemDto.getQuantidade());
-        } else {
-            itemCarrinho = new ItemCarrinho();
-            itemCarrinho.setCarrinho(carrinho);
-            itemCarrinho.setProduto(produto);
-            itemCarrinho.setQuantidade(itemDto.getQuantidade());
-            itemCarrinho.setPrecoUnitario(produto.getPreco());
+    // Lote do carrinho de visitante: mesmas regras de formato, aplicado só ao token, sem tocar o banco
+    public CarrinhoVisitanteService.CarrinhoVisitante aplicarOperacoesVisitante(String token, CarrinhoLoteDTO loteDto) {
+        return carrinhoVisitanteService.aplicarOperacoes(token, validarLote(loteDto));
+    }
+
+    /**
+     * Mescla o carrinho de visitante (token) ao carrinho do usuário, criando-o se preciso: os itens entram como
+     * um único lote de inclusões, todos ou nenhum. Produtos que saíram do cardápio ficam de fora.
+     * Cada carrinho de visitante é mesclado uma vez só: o ID dele fica reservado na linha do carrinho antes da
+     * inclusão, então um login repetido ou refeito com o mesmo token devolve o carrinho sem somar os itens de novo.
+     */
+    public CarrinhoResponseDTO mesclarCarrinhoVisitante(Long userId, String token) {
+        CarrinhoVisitanteService.Mesclagem mesclagem = carrinhoVisitanteService.paraMesclar(token);
+        CarrinhoResponseDTO carrinho = getOrCreateCarrinho(userId);
+        if (mesclagem.operacoes().isEmpty()) {
+            return carrinho;
+        }
+        boolean reservada = retentativaTransacaoService.executar(
+                () -> carrinhoRepository.reservarMesclagem(userId, mesclagem.id()) > 0);
+        if (!reservada) {
+            return getCarrinho(userId); // Já mesclado
         }
+        try {
+            return aplicarValidadas(userId, mesclagem.operacoes()).carrinho();
+        } catch (RuntimeException e) {
+            retentativaTransacaoService.executar(() -> carrinhoRepository.liberarMesclagem(userId, mesclagem.id()));
+            throw e;
+        }
+    }
 
-        if (itemCarrinho.getQuantidade() <= 0) {
-            itemCarrinhoRepository.delete(itemCarrinho);
-        } else {
-            itemCarrinhoRepository.save(itemCarrinho);
+    private AlteracaoCarrinho aplicarValidadas(Long userId, List<OperacaoCarrinhoDTO> operacoes) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.aplicarOperacoes(userId, operacoes);
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.aplicarOperacoes(userId, operacoes);
         }
+        return retentativaTransacaoService.executar(() -> aplicarNoBanco(userId, operacoes));
+    }
 
-        carrinho.setDataAtualizacao(LocalDateTime.now());
-        // Não é necessário setar valorTotal na ENTIDADE aqui, pois ele foi removido dela.
-        carrinhoRepository.save(carrinho);
+    private AlteracaoCarrinho aplicarNoBanco(Long userId, List<OperacaoCarrinhoDTO> operacoes) {
+        Carrinho carrinho = carregarCarrinho(userId);
+        Long versaoAnterior = carrinho.getVersao();
+        Map<Long, Integer> antes = quantidades(carrinho);
+
+        Set<Long> produtoIds = operacoes.stream()
+                .filter(operacao -> operacao.getTipo() == OperacaoCarrinhoDTO.Tipo.ADICIONAR)
+                .map(OperacaoCarrinhoDTO::getProdutoId)
+                .collect(Collectors.toSet());
+        Map<Long, Produto> produtos = produtoIds.isEmpty() ? Map.of() : produtoRepository.findAllById(produtoIds).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+
+        for (int i = 0; i < operacoes.size(); i++) {
+            OperacaoCarrinhoDTO operacao = operacoes.get(i);
+            try {
+                switch (operacao.getTipo()) {
+                    case ADICIONAR -> {
+                        Produto produto = produtos.get(operacao.getProdutoId());
+                        if (produto == null) {
+                            throw new RuntimeException("Produto não encontrado com ID: " + operacao.getProdutoId());
+                        }
+                        adicionarItem(carrinho, produto, operacao.getQuantidade());
+                    }
+                    case ATUALIZAR -> atualizarItem(carrinho, localizarItem(carrinho, operacao), operacao.getQuantidade());
+                    case REMOVER -> removerItem(carrinho, localizarItem(carrinho, operacao));
+                }
+            } catch (RuntimeException e) {
+                if (RetentativaTransacaoService.isConflito(e)) {
+                    throw e; // Disputa com outra requisição: o lote inteiro é refeito pelo RetentativaTransacaoService
+                }
+                // A exceção desfaz a transação inteira, inclusive os itens já inseridos por operações anteriores
+                throw new RuntimeException("Operação " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
 
-        return getCarrinho(userId);
+        carrinho.setDataAtualizacao(LocalDateTime.now());
+        return concluir(carrinho, versaoAnterior, antes);
     }
 
-    @Transactional
-    public CarrinhoResponseDTO updateItemQuantity(Long userId, Long itemId, ItemCarrinhoUpdateDTO updateDto) {
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
-
-        ItemCarrinho itemCarrinho = itemCarrinhoRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item do carrinho não encontrado com ID: " + itemId));
+    public void clearCarrinho(Long userId) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            carrinhoMemoriaService.limpar(userId);
+            return;
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            carrinhoCompactoService.limpar(userId);
+            return;
+        }
+        retentativaTransacaoService.executar(() -> {
+            Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
+                    .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+
+            // Remove todos os itens associados a este carrinho
+            itemCarrinhoRepository.deleteAll(carrinho.getItens());
+
+            // Atualiza a lista de itens no carrinho (para refletir a remoção)
+            carrinho.getItens().clear();
+            carrinho.setDataAtualizacao(LocalDateTime.now());
+            // Não é necessário setar valorTotal na ENTIDADE aqui, pois ele foi removido dela.
+            return carrinhoRepository.save(carrinho);
+        });
+    }
 
-        if (!itemCarrinho.getCarrinho().getId().equals(carrinho.getId())) {
-            throw new RuntimeException("Item do carrinho não pertence ao carrinho do usuário.");
+    // Obter o carrinho de um usuário, calculando o total
+    public CarrinhoResponseDTO getCarrinho(Long userId) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.obter(userId, false);
         }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.obter(userId, false);
+        }
+        return convertToDto(carregarCarrinho(userId));
+    }
 
-        itemCarrinho.setQuantidade(updateDto.getQuantidade());
+    // Itens atuais do carrinho para a finalização do pedido, lidos de onde o carrinho estiver (banco, coluna compacta ou memória)
+    public List<LinhaCarrinho> linhasDoCarrinho(Long userId) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            return carrinhoMemoriaService.linhas(userId);
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            return carrinhoCompactoService.linhas(userId);
+        }
+        return carregarCarrinho(userId).getItens().stream()
+                .map(item -> new LinhaCarrinho(item.getId(), item.getProduto().getId(), item.getQuantidade(), item.getPrecoUnitario()))
+                .toList();
+    }
 
-        if (itemCarrinho.getQuantidade() <= 0) {
-            itemCarrinhoRepository.delete(itemCarrinho);
-        } else {
-            itemCarrinhoRepository.save(itemCarrinho);
+    // Retira do carrinho os itens que viraram pedido; no banco, participa da transação do pedido
+    public void removerLinhasPedidas(Long userId, List<LinhaCarrinho> linhas) {
+        if (carrinhoMemoriaService.isAtivo()) {
+            carrinhoMemoriaService.removerLinhasPedidas(userId, linhas);
+            return;
+        }
+        if (carrinhoCompactoService.isAtivo()) {
+            carrinhoCompactoService.removerLinhasPedidas(userId, linhas);
+            return;
         }
+        itemCarrinhoRepository.deleteAllByIdInBatch(linhas.stream().map(LinhaCarrinho::itemId).toList());
+        // Confere a versão do carrinho lido na finalização: se ele mudou nesse meio-tempo (ex.: item somado por
+        // outra requisição), o commit falha e a finalização é refeita com o carrinho atual
+        carregarCarrinho(userId).setDataAtualizacao(LocalDateTime.now());
+    }
 
-        carrinho.setDataAtualizacao(LocalDateTime.now());
-        // Não é necessário setar valorTotal na ENTIDADE aqui, pois ele foi removido dela.
-        carrinhoRepository.save(carrinho);
+    // Grava já as alterações, para a versão do carrinho na resposta ser a que o commit vai deixar no banco
+    private AlteracaoCarrinho concluir(Carrinho carrinho, Long versaoAnterior, Map<Long, Integer> antes) {
+        carrinhoRepository.flush();
+        return new AlteracaoCarrinho(convertToDto(carrinho), versaoAnterior, antes);
+    }
 
-        return getCarrinho(userId);
+    private static Map<Long, Integer> quantidades(Carrinho carrinho) {
+        Map<Long, Integer> quantidades = new HashMap<>();
+        carrinho.getItens().forEach(item -> quantidades.put(item.getId(), item.getQuantidade()));
+        return quantidades;
     }
 
-    @Transactional
-    public CarrinhoResponseDTO removeItemFromCarrinho(Long userId, Long itemId) {
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
+    // Delta de uma inclusão no banco: só a linha do produto
+    private static CarrinhoDeltaDTO delta(ItemCarrinhoSomado somado, Produto produto) {
+        ItemCarrinhoResponseDTO item = new ItemCarrinhoResponseDTO();
+        item.setId(somado.getId());
+        item.setProdutoId(produto.getId());
+        if (somado.getVersaoItem() == 0) {
+            // Linha nova: o cliente ainda não tem nome e imagem
+            item.setNomeProduto(produto.getNome());
+            item.setImagemProduto(produto.getImagem());
+        }
+        item.setQuantidade(somado.getQuantidade());
+        item.setPrecoUnitario(somado.getPrecoUnitario());
+        item.setSubtotal(somado.getPrecoUnitario().vezes(somado.getQuantidade()));
+
+        CarrinhoDeltaDTO delta = new CarrinhoDeltaDTO();
+        delta.setVersaoAnterior(somado.getVersaoCarrinho() - 1);
+        delta.setVersao(somado.getVersaoCarrinho());
+        delta.setItensAlterados(List.of(item));
+        delta.setItensRemovidos(List.of());
+        delta.setValorTotal(Dinheiro.deCentavos(somado.getTotalCentavos()));
+        return delta;
+    }
+
+    private Carrinho carregarCarrinho(Long userId) {
+        return carrinhoRepository.findCompletoByUsuarioId(userId)
                 .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    }
 
-        ItemCarrinho itemCarrinho = itemCarrinhoRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item do carrinho não encontrado com ID: " + itemId));
+    // Valida o formato do lote antes de tocar no carrinho
+    private List<OperacaoCarrinhoDTO> validarLote(CarrinhoLoteDTO loteDto) {
+        List<OperacaoCarrinhoDTO> operacoes = loteDto == null ? null : loteDto.getOperacoes();
+        if (operacoes == null || operacoes.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma operação.");
+        }
+        if (operacoes.size() > maximoOperacoesLote) {
+            throw new IllegalArgumentException("O lote aceita no máximo " + maximoOperacoesLote + " operações.");
+        }
+        for (int i = 0; i < operacoes.size(); i++) {
+            OperacaoCarrinhoDTO operacao = operacoes.get(i);
+            String prefixo = "Operação " + (i + 1) + ": ";
+            if (operacao == null || operacao.getTipo() == null) {
+                throw new IllegalArgumentException(prefixo + "informe o tipo (ADICIONAR, ATUALIZAR ou REMOVER).");
+            }
+            if (operacao.getTipo() == OperacaoCarrinhoDTO.Tipo.ADICIONAR && operacao.getProdutoId() == null) {
+                throw new IllegalArgumentException(prefixo + "informe o produtoId.");
+            }
+            if (operacao.getTipo() != OperacaoCarrinhoDTO.Tipo.ADICIONAR && operacao.getItemId() == null && operacao.getProdutoId() == null) {
+                throw new IllegalArgumentException(prefixo + "informe o itemId ou o produtoId.");
+            }
+            if (operacao.getTipo() != OperacaoCarrinhoDTO.Tipo.REMOVER && operacao.getQuantidade() == null) {
+                throw new IllegalArgumentException(prefixo + "informe a quantidade.");
+            }
+        }
+        return operacoes;
+    }
 
-        if (!itemCarrinho.getCarrinho().getId().equals(carrinho.getId())) {
-            throw new RuntimeException("Item do carrinho não pertence ao carrinho do usuário.");
+    private void adicionarItem(Carrinho carrinho, Produto produto, int quantidade) {
+        if (!produto.getDisponibilidade()) {
+            throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
         }
 
-        itemCarrinhoRepository.delete(itemCarrinho);
-        carrinho.setDataAtualizacao(LocalDateTime.now());
-        // Não é necessário setar valorTotal na ENTIDADE aqui, pois ele foi removido dela.
-        carrinhoRepository.save(carrinho);
+        Optional<ItemCarrinho> existingItem = carrinho.getItens().stream()
+                .filter(item -> item.getProduto().getId().equals(produto.getId()))
+                .findFirst();
 
-        return getCarrinho(userId);
+        ItemCarrinho itemCarrinho;
+        if (existingItem.isPresent()) {
+            itemCarrinho = existingItem.get();
+            itemCarrinho.setQuantidade(itemCarrinho.getQuantidade() + quantidade);
+        } else {
+            itemCarrinho = new ItemCarrinho();
+            itemCarrinho.setCarrinho(carrinho);
+            itemCarrinho.setProduto(produto);
+            itemCarrinho.setQuantidade(quantidade);
+            itemCarrinho.setPrecoUnitario(produto.getPreco());
+        }
+
+        if (itemCarrinho.getQuantidade() <= 0) {
+            removerItem(carrinho, itemCarrinho);
+        } else if (existingItem.isEmpty()) {
+            itemCarrinhoRepository.save(itemCarrinho); // Insere já, para a resposta ter o ID do item
+            carrinho.getItens().add(itemCarrinho);
+        }
     }
 
-    @Transactional
-    public void clearCarrinho(Long userId) {
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    private void atualizarItem(Carrinho carrinho, ItemCarrinho itemCarrinho, int quantidade) {
+        itemCarrinho.setQuantidade(quantidade);
 
-        // Remove todos os itens associados a este carrinho
-        itemCarrinhoRepository.deleteAll(carrinho.getItens());
+        if (itemCarrinho.getQuantidade() <= 0) {
+            removerItem(carrinho, itemCarrinho);
+        }
+    }
 
-        // Atualiza a lista de itens no carrinho (para refletir a remoção)
-        carrinho.getItens().clear();
-        carrinho.setDataAtualizacao(LocalDateTime.now());
-        // Não é necessário setar valorTotal na ENTIDADE aqui, pois ele foi removido dela.
-        carrinhoRepository.save(carrinho);
+    // Item de uma operação do lote, pelo ID do item ou pelo produto (útil para itens incluídos no mesmo lote)
+    private ItemCarrinho localizarItem(Carrinho carrinho, OperacaoCarrinhoDTO operacao) {
+        if (operacao.getItemId() != null) {
+            return buscarItem(carrinho, operacao.getItemId());
+        }
+        return carrinho.getItens().stream()
+                .filter(item -> item.getProduto().getId().equals(operacao.getProdutoId()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Produto não está no carrinho: " + operacao.getProdutoId()));
     }
 
-    // Obter o carrinho de um usuário, calculando o total
-    public CarrinhoResponseDTO getCarrinho(Long userId) {
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+    // Procura o item entre os já carregados; se não estiver lá, diferencia item inexistente de item de outro carrinho
+    private ItemCarrinho buscarItem(Carrinho carrinho, Long itemId) {
+        for (ItemCarrinho item : carrinho.getItens()) {
+            if (item.getId().equals(itemId)) {
+                return item;
+            }
+        }
+        if (itemCarrinhoRepository.existsById(itemId)) {
+            throw new RuntimeException("Item do carrinho não pertence ao carrinho do usuário.");
+        }
+        throw new RuntimeException("Item do carrinho não encontrado com ID: " + itemId);
+    }
 
-        return convertToDto(carrinho);
+    // Compara por referência para não acionar o equals gerado pelo Lombok. A exclusão é explícita porque o
+    // orphanRemoval não alcança itens inseridos na mesma transação (ex.: incluído e removido no mesmo lote)
+    private void removerItem(Carrinho carrinho, ItemCarrinho itemCarrinho) {
+        carrinho.getItens().removeIf(item -> item == itemCarrinho);
+        if (itemCarrinho.getId() != null) {
+            itemCarrinhoRepository.delete(itemCarrinho);
+        }
     }
 
     // Método auxiliar para converter Entidade para DTO (Carrinho e seus itens)
@@ -181,17 +485,19 @@ public class CarrinhoService {
                     itemCarrinhoDTO.setQuantidade(item.getQuantidade());
                     itemCarrinhoDTO.setPrecoUnitario(item.getPrecoUnitario());
                     // Calcula o subtotal para cada item.
-                    itemCarrinhoDTO.setSubtotal(item.getPrecoUnitario().multiply(BigDecimal.valueOf(item.getQuantidade())));
+                    itemCarrinhoDTO.setSubtotal(item.getPrecoUnitario().vezes(item.getQuantidade()));
                     return itemCarrinhoDTO;
                 })
                 .collect(Collectors.toList());
         carrinhoDTO.setItens(itemDTOs);
 
         // Calcula o valor total do carrinho AGORA, no DTO, somando os subtotais dos itens.
-        BigDecimal valorTotal = itemDTOs.stream()
-                .map(ItemCarrinhoResponseDTO::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        carrinhoDTO.setValorTotal(valorTotal); // Define o valor total no DTO.
+        long valorTotal = 0;
+        for (ItemCarrinhoResponseDTO itemDTO : itemDTOs) {
+            valorTotal = Math.addExact(valorTotal, itemDTO.getSubtotal().centavos());
+        }
+        carrinhoDTO.setValorTotal(Dinheiro.deCentavos(valorTotal)); // Define o valor total no DTO.
+        carrinhoDTO.setVersao(carrinho.getVersao());
 
         return carrinhoDTO;
     }
@@ -0,0 +1,171 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carrinho de visitante sem nada gravado no servidor: os itens viajam com o cliente em um token assinado
+ * (cabeçalho X-Carrinho-Visitante), que cada operação lê, altera e devolve renovado. Nome, imagem e
+ * disponibilidade dos produtos vêm do snapshot do cardápio, então navegar e montar o carrinho não toca o banco.
+ *
+ * Token: validade (segundos desde 1970, base 36), ID aleatório do carrinho de visitante, itens no formato de
+ * ItensCompactos (base64url) e os primeiros 16 bytes do HMAC-SHA256 das três partes, separados por ponto. O ID
+ * nasce com o carrinho e se mantém nas renovações. No login, os itens são mesclados ao carrinho do usuário por
+ * CarrinhoService.mesclarCarrinhoVisitante, que usa o ID para não mesclar o mesmo carrinho duas vezes.
+ */
+@Service
+public class CarrinhoVisitanteService {
+
+    public static final String CABECALHO = "X-Carrinho-Visitante";
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final int TAMANHO_ASSINATURA = 16;
+    private static final int TAMANHO_MAXIMO_TOKEN = 2048;
+    private static final int TAMANHO_ID = 9; // 12 caracteres em base64url
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    private final CardapioSnapshotService cardapioSnapshotService;
+    private final SecretKeySpec chave;
+    private final long validadeSegundos;
+    private final int maximoItens;
+
+    public CarrinhoVisitanteService(CardapioSnapshotService cardapioSnapshotService,
+                                    @Value("${app.carrinho.visitante.segredo:${app.jwt.secret}}") String segredo,
+                                    @Value("${app.carrinho.visitante.validade-dias:7}") long validadeDias,
+                                    @Value("${app.carrinho.visitante.maximo-itens:50}") int maximoItens) {
+        this.cardapioSnapshotService = cardapioSnapshotService;
+        this.chave = new SecretKeySpec(Base64.getDecoder().decode(segredo), ALGORITMO);
+        this.validadeSegundos = validadeDias * 86_400L;
+        this.maximoItens = maximoItens;
+    }
+
+    /** Resposta de uma operação: o carrinho no formato de sempre e o token que o cliente deve guardar. */
+    public record CarrinhoVisitante(CarrinhoResponseDTO carrinho, String token) {
+    }
+
+    /** O que o login deve mesclar: o ID do carrinho de visitante (nulo sem token) e os itens como inclusões. */
+    public record Mesclagem(String id, List<OperacaoCarrinhoDTO> operacoes) {
+    }
+
+    // Conteúdo de um token válido
+    private record Lido(String id, ItensCompactos itens) {
+    }
+
+    public CarrinhoVisitante obter(String token) {
+        Lido lido = ler(token);
+        return responder(lido.id(), lido.itens());
+    }
+
+    public CarrinhoVisitante adicionar(String token, Long produtoId, int quantidade) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        return alterar(token, itens -> itens.adicionar(snapshot, produtoId, quantidade));
+    }
+
+    public CarrinhoVisitante atualizar(String token, Long itemId, int quantidade) {
+        return alterar(token, itens -> itens.atualizar(itens.buscar(itemId), quantidade));
+    }
+
+    public CarrinhoVisitante remover(String token, Long itemId) {
+        return alterar(token, itens -> itens.remover(itens.buscar(itemId)));
+    }
+
+    // Lote já validado pelo CarrinhoService
+    public CarrinhoVisitante aplicarOperacoes(String token, List<OperacaoCarrinhoDTO> operacoes) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        return alterar(token, itens -> itens.aplicar(operacoes, snapshot));
+    }
+
+    /**
+     * Itens do carrinho de visitante como inclusões para o carrinho do usuário, deixando de fora produtos que
+     * saíram do cardápio ou estão indisponíveis (não devem impedir o login). Sem token, ID nulo e lista vazia.
+     */
+    public Mesclagem paraMesclar(String token) {
+        if (token == null || token.isBlank()) {
+            return new Mesclagem(null, List.of());
+        }
+        Lido lido = ler(token);
+        ItensCompactos itens = lido.itens();
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        List<OperacaoCarrinhoDTO> operacoes = new ArrayList<>(itens.itens().size());
+        for (ItensCompactos.Item item : itens.itens()) {
+            ProdutoDTO produto = snapshot.getProduto(item.produtoId);
+            if (produto != null && Boolean.TRUE.equals(produto.getDisponibilidade())) {
+                OperacaoCarrinhoDTO operacao = new OperacaoCarrinhoDTO();
+                operacao.setTipo(OperacaoCarrinhoDTO.Tipo.ADICIONAR);
+                operacao.setProdutoId(item.produtoId);
+                operacao.setQuantidade(item.quantidade);
+                operacoes.add(operacao);
+            }
+        }
+        return new Mesclagem(lido.id(), operacoes);
+    }
+
+    private CarrinhoVisitante alterar(String token, Consumer<ItensCompactos> alteracao) {
+        Lido lido = ler(token);
+        ItensCompactos itens = lido.itens();
+        alteracao.accept(itens);
+        if (itens.itens().size() > maximoItens) {
+            throw new IllegalArgumentException("O carrinho de visitante aceita no máximo " + maximoItens + " itens.");
+        }
+        return responder(lido.id(), itens);
+    }
+
+    private CarrinhoVisitante responder(String id, ItensCompactos itens) {
+        return new CarrinhoVisitante(itens.paraDto(cardapioSnapshotService.getSnapshot()), emitir(id, itens));
+    }
+
+    // Sem token, carrinho novo e vazio; token adulterado, malformado ou vencido é recusado
+    private Lido ler(String token) {
+        if (token == null || token.isBlank()) {
+            byte[] id = new byte[TAMANHO_ID];
+            ALEATORIO.nextBytes(id);
+            return new Lido(BASE64.encodeToString(id), new ItensCompactos());
+        }
+        String[] partes = token.length() > TAMANHO_MAXIMO_TOKEN ? new String[0] : token.trim().split("\\.");
+        try {
+            if (partes.length == 4
+                    && MessageDigest.isEqual(assinar(partes[0] + "." + partes[1] + "." + partes[2]),
+                            Base64.getUrlDecoder().decode(partes[3]))
+                    && Long.parseLong(partes[0], 36) >= Instant.now().getEpochSecond()) {
+                return new Lido(partes[1], ItensCompactos.decodificar(Base64.getUrlDecoder().decode(partes[2])));
+            }
+        } catch (IllegalArgumentException | IllegalStateException | ArithmeticException e) {
+            // Cai na recusa abaixo
+        }
+        throw new IllegalArgumentException("Carrinho de visitante inválido ou expirado.");
+    }
+
+    private String emitir(String id, ItensCompactos itens) {
+        String conteudo = Long.toString(Instant.now().getEpochSecond() + validadeSegundos, 36)
+                + "." + id + "." + BASE64.encodeToString(itens.codificar());
+        return conteudo + "." + BASE64.encodeToString(assinar(conteudo));
+    }
+
+    private byte[] assinar(String conteudo) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chave);
+            mac.update("carrinho-visitante.".getBytes(StandardCharsets.US_ASCII)); // Separa do uso da chave nos JWTs
+            return Arrays.copyOf(mac.doFinal(conteudo.getBytes(StandardCharsets.US_ASCII)), TAMANHO_ASSINATURA);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Não foi possível assinar o carrinho de visitante", e);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.ErroImportacaoDTO;
+import com.example.menubackend.dto.ImportacaoResultadoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Importação e exportação do catálogo em lote (NDJSON ou CSV).
+ * A importação lê o corpo registro a registro e grava em lotes JDBC; a exportação percorre um cursor
+ * do banco escrevendo direto na saída, sem montar a lista inteira em memória.
+ */
+@Service
+public class CatalogoImportExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoImportExportService.class);
+
+    private static final int MAX_ERROS_REPORTADOS = 1000;
+    private static final int TAMANHO_MAXIMO_TEXTO = 255; // Tamanho das colunas varchar de produto
+    private static final String[] COLUNAS = {"id", "nome", "descricao", "preco", "categoria", "disponibilidade", "imagem"};
+
+    // Insere produtos novos (id nulo ou inexistente) e atualiza os existentes em um único comando
+    private static final String UPSERT_SQL =
+            "INSERT INTO produto (id, nome, descricao, preco, categoria, disponibilidade, imagem) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE nome = VALUES(nome), descricao = VALUES(descricao), preco = VALUES(preco), " +
+            "categoria = VALUES(categoria), disponibilidade = VALUES(disponibilidade), imagem = VALUES(imagem)";
+
+    private static final String EXPORT_SQL =
+            "SELECT id, nome, descricao, preco, categoria, disponibilidade, imagem FROM produto ORDER BY id";
+
+    public enum Formato { NDJSON, CSV }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader leitorProduto;
+    private final ObjectMapper objectMapper;
+    private final CardapioSnapshotService cardapioSnapshotService;
+
+    @Value("${app.catalogo.importacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    public CatalogoImportExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper, CardapioSnapshotService cardapioSnapshotService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.leitorProduto = objectMapper.readerFor(ProdutoDTO.class);
+        this.cardapioSnapshotService = cardapioSnapshotService;
+    }
+
+    public ImportacaoResultadoDTO importar(InputStream entrada, Formato formato) throws IOException {
+        ImportacaoResultadoDTO resultado = new ImportacaoResultadoDTO();
+        List<LinhaImportada> lote = new ArrayList<>(tamanhoLote);
+
+        try (LeitorRegistros leitor = new LeitorRegistros(
+                new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)), formato)) {
+            Map<String, Integer> cabecalho = null;
+            while (true) {
+                String linha;
+                try {
+                    linha = leitor.proximo();
+                } catch (IllegalArgumentException e) {
+                    // Registro grande demais (aspas sem fechamento): não há como achar o início do próximo,
+                    // então ele é reportado como erro e a leitura para, mantendo o que já foi gravado
+                    resultado.setLinhasLidas(resultado.getLinhasLidas() + 1);
+                    registrarErro(resultado, leitor.getLinhaInicial(), e.getMessage());
+                    break;
+                }
+                if (linha == null) {
+                    break;
+                }
+                long numeroLinha = leitor.getLinhaInicial();
+                if (linha.isBlank()) {
+                    continue;
+                }
+                if (formato == Formato.CSV && cabecalho == null) {
+                    cabecalho = lerCabecalho(linha);
+                    continue;
+                }
+
+                resultado.setLinhasLidas(resultado.getLinhasLidas() + 1);
+                try {
+                    ProdutoDTO produto = formato == Formato.NDJSON
+                            ? leitorProduto.readValue(linha)
+                            : lerLinhaCsv(cabecalho, separarCsv(linha));
+                    validar(produto);
+                    lote.add(new LinhaImportada(numeroLinha, produto));
+                } catch (JsonProcessingException e) {
+                    registrarErro(resultado, numeroLinha, "JSON inválido: " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    registrarErro(resultado, numeroLinha, e.getMessage());
+                }
+
+                if (lote.size() >= tamanhoLote) {
+                    gravarLote(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarLote(lote, resultado);
+            }
+        } finally {
+            // Uma única troca de snapshot para toda a importação, mesmo que ela pare no meio
+            // (ex.: conexão interrompida): os lotes já gravados continuam no banco
+            if (resultado.getImportados() > 0) {
+                cardapioSnapshotService.recarregar();
+            }
+        }
+
+        logger.info("Importação do catálogo concluída: {} linhas, {} importadas, {} com erro",
+                resultado.getLinhasLidas(), resultado.getImportados(), resultado.getComErro());
+        return resultado;
+    }
+
+    public void exportar(OutputStream saida, Formato formato) throws IOException {
+        if (formato == Formato.NDJSON) {
+            exportarNdjson(saida);
+        } else {
+            exportarCsv(saida);
+        }
+    }
+
+    private void exportarNdjson(OutputStream saida) throws IOException {
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+            gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gerador.setRootValueSeparator(null); // Cada objeto termina com '\n', sem o espaço padrão entre raízes
+            percorrerProdutos(rs -> {
+                try {
+                    gerador.writeStartObject();
+                    gerador.writeNumberField("id", rs.getLong("id"));
+                    gerador.writeStringField("nome", rs.getString("nome"));
+                    gerador.writeStringField("descricao", rs.getString("descricao"));
+                    long centavos = rs.getLong("preco");
+                    gerador.writeFieldName("preco");
+                    if (rs.wasNull()) {
+                        gerador.writeNull();
+                    } else {
+                        gerador.writeNumber(Dinheiro.deCentavos(centavos).toString());
+                    }
+                    gerador.writeStringField("categoria", rs.getString("categoria"));
+                    boolean disponivel = rs.getBoolean("disponibilidade");
+                    gerador.writeFieldName("disponibilidade");
+                    if (rs.wasNull()) {
+                        gerador.writeNull();
+                    } else {
+                        gerador.writeBoolean(disponivel);
+                    }
+                    gerador.writeStringField("imagem", rs.getString("imagem"));
+                    gerador.writeEndObject();
+                    gerador.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void exportarCsv(OutputStream saida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        escritor.write(String.join(",", COLUNAS));
+        escritor.write('\n');
+        percorrerProdutos(rs -> {
+            try {
+                long centavos = rs.getLong("preco");
+                Dinheiro preco = rs.wasNull() ? null : Dinheiro.deCentavos(centavos);
+                boolean disponivel = rs.getBoolean("disponibilidade");
+                String disponibilidade = rs.wasNull() ? null : String.valueOf(disponivel);
+                escritor.write(rs.getLong("id") + ","
+                        + campoCsv(rs.getString("nome")) + ","
+                        + campoCsv(rs.getString("descricao")) + ","
+                        + (preco != null ? preco.toString() : "") + ","
+                        + campoCsv(rs.getString("categoria")) + ","
+                        + campoCsv(disponibilidade) + ","
+                        + campoCsv(rs.getString("imagem")));
+                escritor.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        escritor.flush();
+    }
+
+    // Lê a tabela de produtos em streaming: com fetch size Integer.MIN_VALUE o driver MySQL entrega
+    // uma linha por vez do cursor, em vez de carregar o resultado inteiro no cliente
+    private void percorrerProdutos(RowCallbackHandler tratador) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, tratador);
+    }
+
+    private void gravarLote(List<LinhaImportada> lote, ImportacaoResultadoDTO resultado) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, lote, lote.size(), (ps, linha) -> {
+                        ProdutoDTO produto = linha.produto();
+                        ps.setObject(1, produto.getId(), Types.BIGINT);
+                        ps.setString(2, produto.getNome());
+                        ps.setString(3, produto.getDescricao());
+                        ps.setObject(4, produto.getPreco() != null ? produto.getPreco().centavos() : null, Types.BIGINT);
+                        ps.setString(5, produto.getCategoria().name());
+                        ps.setBoolean(6, produto.getDisponibilidade() == null || produto.getDisponibilidade());
+                        ps.setString(7, produto.getImagem());
+                    }));
+            resultado.setImportados(resultado.getImportados() + lote.size());
+        } catch (DataAccessException e) {
+            // O lote inteiro foi desfeito: todas as suas linhas são reportadas
+            String causa = e.getMostSpecificCause().getMessage();
+            logger.warn("Falha ao gravar lote de {} produtos: {}", lote.size(), causa);
+            for (LinhaImportada linha : lote) {
+                registrarErro(resultado, linha.numero(), "Lote não gravado: " + causa);
+            }
+        }
+    }
+
+    private void validar(ProdutoDTO produto) {
+        if (produto.getNome() == null || produto.getNome().isBlank()) {
+            throw new IllegalArgumentException("O nome é obrigatório");
+        }
+        if (produto.getPreco() == null) {
+            throw new IllegalArgumentException("O preço é obrigatório");
+        }
+        if (produto.getPreco().centavos() < 0) {
+            throw new IllegalArgumentException("O preço não pode ser negativo");
+        }
+        if (produto.getCategoria() == null) {
+            throw new IllegalArgumentException("A categoria é obrigatória");
+        }
+        validarTamanho("nome", produto.getNome());
+        validarTamanho("descricao", produto.getDescricao());
+        validarTamanho("imagem", produto.getImagem());
+    }
+
+    private void validarTamanho(String campo, String valor) {
+        if (valor != null && valor.length() > TAMANHO_MAXIMO_TEXTO) {
+            throw new IllegalArgumentException("O campo " + campo + " excede " + TAMANHO_MAXIMO_TEXTO + " caracteres");
+        }
+    }
+
+    private void registrarErro(ImportacaoResultadoDTO resultado, long linha, String mensagem) {
+        resultado.setComErro(resultado.getComErro() + 1);
+        if (resultado.getErros().size() < MAX_ERROS_REPORTADOS) {
+            resultado.getErros().add(new ErroImportacaoDTO(linha, mensagem));
+        }
+    }
+
+    private Map<String, Integer> lerCabecalho(String linha) {
+        List<String> nomes = separarCsv(linha.replace("\uFEFF", "")); // Ignora o BOM de planilhas exportadas
+        Map<String, Integer> cabecalho = new HashMap<>();
+        for (int i = 0; i < nomes.size(); i++) {
+            cabecalho.put(nomes.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String obrigatoria : List.of("nome", "preco", "categoria")) {
+            if (!cabecalho.containsKey(obrigatoria)) {
+                throw new IllegalArgumentException("Cabeçalho CSV sem a coluna obrigatória: " + obrigatoria);
+            }
+        }
+        return cabecalho;
+    }
+
+    private ProdutoDTO lerLinhaCsv(Map<String, Integer> cabecalho, List<String> campos) {
+        ProdutoDTO produto = new ProdutoDTO();
+        String id = valorCsv(cabecalho, campos, "id");
+        String preco = valorCsv(cabecalho, campos, "preco");
+        String categoria = valorCsv(cabecalho, campos, "categoria");
+        String disponibilidade = valorCsv(cabecalho, campos, "disponibilidade");
+        try {
+            produto.setId(id != null ? Long.valueOf(id) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID inválido: " + id);
+        }
+        try {
+            produto.setPreco(Dinheiro.deReais(preco));
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Preço inválido: " + preco);
+        }
+        try {
+            produto.setCategoria(categoria != null ? Categoria.valueOf(categoria.toUpperCase(Locale.ROOT)) : null);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Categoria inválida: " + categoria);
+        }
+        produto.setNome(valorCsv(cabecalho, campos, "nome"));
+        produto.setDescricao(valorCsv(cabecalho, campos, "descricao"));
+        produto.setDisponibilidade(disponibilidade == null ? null
+                : disponibilidade.equalsIgnoreCase("true") || disponibilidade.equals("1"));
+        produto.setImagem(valorCsv(cabecalho, campos, "imagem"));
+        return produto;
+    }
+
+    private String valorCsv(Map<String, Integer> cabecalho, List<String> campos, String coluna) {
+        Integer indice = cabecalho.get(coluna);
+        if (indice == null || indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Divide uma linha CSV (RFC 4180) respeitando campos entre aspas e aspas duplicadas
+    static List<String> separarCsv(String linha) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                        atual.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        if (entreAspas) {
+            throw new IllegalArgumentException("Linha CSV com aspas não fechadas");
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+
+    private record LinhaImportada(long numero, ProdutoDTO produto) {
+    }
+
+    /**
+     * Lê um registro por vez: no NDJSON, cada linha; no CSV, cada registro RFC 4180, que continua nas linhas
+     * seguintes enquanto houver um campo entre aspas aberto (quebras de linha dentro das aspas, como as que a
+     * exportação escreve, fazem parte do valor). Conta as linhas físicas para os erros apontarem a linha do arquivo.
+     */
+    static final class LeitorRegistros implements AutoCloseable {
+
+        // Um registro CSV válido tem no máximo 7 campos de 255 caracteres; acima disso há aspas sem fechamento
+        private static final int TAMANHO_MAXIMO_REGISTRO = 64 * 1024;
+
+        private final BufferedReader leitor;
+        private final boolean csv;
+        private final StringBuilder registro = new StringBuilder();
+        private long linhaAtual;
+        private long linhaInicial;
+
+        LeitorRegistros(BufferedReader leitor, Formato formato) {
+            this.leitor = leitor;
+            this.csv = formato == Formato.CSV;
+        }
+
+        // Linha do arquivo em que começa o último registro lido
+        long getLinhaInicial() {
+            return linhaInicial;
+        }
+
+        String proximo() throws IOException {
+            linhaInicial = linhaAtual + 1;
+            if (!csv) {
+                String linha = leitor.readLine();
+                if (linha != null) {
+                    linhaAtual++;
+                }
+                return linha;
+            }
+
+            registro.setLength(0);
+            boolean entreAspas = false;
+            int c;
+            while ((c = leitor.read()) != -1) {
+                if (c == '"') {
+                    entreAspas = !entreAspas; // Aspas duplicadas alternam duas vezes e não mudam o estado
+                } else if (!entreAspas && (c == '\n' || c == '\r')) {
+                    if (c == '\r') {
+                        leitor.mark(1);
+                        if (leitor.read() != '\n') {
+                            leitor.reset();
+                        }
+                    }
+                    linhaAtual++;
+                    return registro.toString();
+                } else if (c == '\n') {
+                    linhaAtual++;
+                }
+                registro.append((char) c);
+                if (registro.length() > TAMANHO_MAXIMO_REGISTRO) {
+                    throw new IllegalArgumentException("Registro CSV iniciado na linha " + linhaInicial
+                            + " excede " + TAMANHO_MAXIMO_REGISTRO + " caracteres (aspas não fechadas?)");
+                }
+            }
+            if (registro.isEmpty()) {
+                return null;
+            }
+            linhaAtual++;
+            return registro.toString(); // Última linha sem quebra; aspas abertas são reportadas por separarCsv
+        }
+
+        @Override
+        public void close() throws IOException {
+            leitor.close();
+        }
+    }
+}
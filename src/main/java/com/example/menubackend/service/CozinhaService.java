@@ -0,0 +1,129 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.FilaCozinhaDTO;
+import com.example.menubackend.dto.PedidoResponseDTO;
+import com.example.menubackend.model.StatusPedido;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Fila da cozinha: os pedidos ativos (PENDENTE) em memória, do mais antigo para o mais novo, publicados via
+ * Server-Sent Events para as telas da cozinha, substituindo o polling de GET /api/pedidos.
+ *
+ * Carregada do banco na inicialização e mantida pelo PedidoService: cada pedido criado ou com status alterado
+ * entra, muda ou sai da fila depois do commit e gera um evento "pedido" com o pedido completo (status diferente
+ * de PENDENTE significa que ele saiu da fila). Cada alteração avança a versão da fila, que é o id do evento.
+ * Ao conectar ou reconectar, a tela recebe a fila inteira (evento "fila") e depois só as alterações.
+ */
+@Service
+public class CozinhaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CozinhaService.class);
+
+    public static final String EVENTO_FILA = "fila";
+    public static final String EVENTO_PEDIDO = "pedido";
+
+    private final SseBroadcaster canal;
+
+    // Protegidos por this: a alteração e a publicação do evento acontecem juntas, na ordem das versões
+    private final NavigableMap<Long, PedidoResponseDTO> ativos = new TreeMap<>(); // Por ID do pedido
+    private long versao;
+
+    public CozinhaService(ObjectMapper objectMapper,
+                          @Value("${app.pedidos.cozinha.maximo-conexoes:200}") int maximoConexoes,
+                          @Value("${app.eventos.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${app.eventos.maximo-pendentes:64}") int maximoPendentes,
+                          @Value("${app.eventos.threads-escrita:4}") int threadsEscrita) {
+        this.canal = new SseBroadcaster("cozinha", objectMapper, maximoConexoes, timeoutMs,
+                maximoPendentes, threadsEscrita);
+    }
+
+    public static boolean isAtivo(StatusPedido status) {
+        return status == StatusPedido.PENDENTE;
+    }
+
+    // Fila inicial, lida do banco; pedidos que já chegaram por registrar não são sobrescritos
+    public synchronized void carregar(List<PedidoResponseDTO> pedidos) {
+        for (PedidoResponseDTO pedido : pedidos) {
+            ativos.putIfAbsent(pedido.getId(), pedido);
+        }
+        logger.info("Fila da cozinha carregada com {} pedidos ativos", ativos.size());
+    }
+
+    /**
+     * Registra um pedido criado ou alterado. Dentro de uma transação, só é aplicado depois do commit, para que
+     * a cozinha nunca veja um pedido desfeito por rollback (ex.: retentativa por conflito).
+     */
+    public void registrar(PedidoResponseDTO pedido) {
+        registrar(List.of(pedido));
+    }
+
+    public void registrar(List<PedidoResponseDTO> pedidos) {
+        if (pedidos.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(pedidos);
+                }
+            });
+        } else {
+            aplicar(pedidos);
+        }
+    }
+
+    public synchronized FilaCozinhaDTO getFila() {
+        return new FilaCozinhaDTO(versao, new ArrayList<>(ativos.values()));
+    }
+
+    /**
+     * Inscreve uma tela da cozinha. A fila atual é enviada na thread do canal, antes de qualquer evento
+     * posterior a ela; o cliente pode descartar eventos "pedido" com id menor ou igual à versão da fila.
+     * Lança IllegalStateException se o limite de conexões foi atingido.
+     */
+    public SseEmitter inscrever() {
+        return canal.inscrever(emissor -> {
+            FilaCozinhaDTO fila = getFila();
+            canal.enviar(emissor, EVENTO_FILA, String.valueOf(fila.getVersao()), fila);
+        });
+    }
+
+    @Scheduled(fixedRateString = "${app.eventos.heartbeat-ms:20000}")
+    public void manterConexoes() {
+        canal.manterConexoes();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        canal.encerrar();
+    }
+
+    private synchronized void aplicar(List<PedidoResponseDTO> pedidos) {
+        for (PedidoResponseDTO pedido : pedidos) {
+            boolean ativo = isAtivo(pedido.getStatus());
+            if (!ativo && ativos.remove(pedido.getId()) == null) {
+                continue; // Não estava na fila (ex.: cancelado duas vezes): nada muda para a cozinha
+            }
+            if (ativo) {
+                ativos.put(pedido.getId(), pedido);
+            }
+            versao++;
+            canal.publicar(EVENTO_PEDIDO, String.valueOf(versao), pedido);
+        }
+    }
+}
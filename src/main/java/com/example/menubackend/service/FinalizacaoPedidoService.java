@@ -0,0 +1,247 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.FinalizacaoPedidoDTO;
+import com.example.menubackend.dto.PedidoResponseDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finalização de pedidos assíncrona (app.pedidos.finalizacao.modo=assincrona). Cada pedido de finalização
+ * entra em uma fila limitada e o cliente recebe na hora uma referência para acompanhar o andamento.
+ * Threads próprias tiram da fila tudo o que se acumulou (até app.pedidos.finalizacao.tamanho-grupo) e gravam
+ * o grupo em uma única transação (PedidoService.finalizarPedidos); se o grupo falhar, os pedidos são refeitos
+ * um a um. O resultado fica disponível por app.pedidos.finalizacao.retencao-minutos depois de concluído.
+ * Referências e resultados ficam em memória, o que pressupõe uma única instância da aplicação.
+ */
+@Service
+public class FinalizacaoPedidoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FinalizacaoPedidoService.class);
+
+    public enum Situacao { NA_FILA, PROCESSANDO, CONCLUIDA, FALHOU }
+
+    private final PedidoService pedidoService;
+    private final IdempotenciaPedidoService idempotenciaPedidoService;
+    private final boolean ativo;
+    private final int tamanhoGrupo;
+    private final int quantidadeTrabalhadores;
+    private final long retencaoMs;
+
+    private final BlockingQueue<Finalizacao> fila;
+    private final Map<String, Finalizacao> porReferencia = new ConcurrentHashMap<>();
+    private final Map<Long, Finalizacao> pendentesPorUsuario = new ConcurrentHashMap<>();
+    private final Map<String, Finalizacao> porChave = new ConcurrentHashMap<>(); // "usuário:Idempotency-Key"
+    private final List<Thread> trabalhadores = new ArrayList<>();
+    private volatile boolean encerrando;
+
+    public FinalizacaoPedidoService(PedidoService pedidoService, IdempotenciaPedidoService idempotenciaPedidoService,
+                                    @Value("${app.pedidos.finalizacao.modo:sincrona}") String modo,
+                                    @Value("${app.pedidos.finalizacao.fila:1000}") int capacidadeFila,
+                                    @Value("${app.pedidos.finalizacao.tamanho-grupo:50}") int tamanhoGrupo,
+                                    @Value("${app.pedidos.finalizacao.trabalhadores:2}") int quantidadeTrabalhadores,
+                                    @Value("${app.pedidos.finalizacao.retencao-minutos:15}") long retencaoMinutos) {
+        this.pedidoService = pedidoService;
+        this.idempotenciaPedidoService = idempotenciaPedidoService;
+        this.ativo = "assincrona".equalsIgnoreCase(modo.trim());
+        this.fila = new ArrayBlockingQueue<>(Math.max(1, capacidadeFila));
+        this.tamanhoGrupo = Math.max(1, tamanhoGrupo);
+        this.quantidadeTrabalhadores = Math.max(1, quantidadeTrabalhadores);
+        this.retencaoMs = retencaoMinutos * 60_000L;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!ativo) {
+            return;
+        }
+        for (int i = 1; i <= quantidadeTrabalhadores; i++) {
+            Thread thread = new Thread(this::trabalhar, "finalizacao-pedidos-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            trabalhadores.add(thread);
+        }
+        logger.info("Finalização de pedidos assíncrona ativada ({} threads, grupos de até {})", quantidadeTrabalhadores, tamanhoGrupo);
+    }
+
+    // Os pedidos já aceitos ainda são gravados antes de o banco ser fechado
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        encerrando = true;
+        for (Thread thread : trabalhadores) {
+            thread.join(30_000);
+        }
+        if (!fila.isEmpty()) {
+            logger.warn("{} finalizações de pedido ficaram na fila no encerramento", fila.size());
+        }
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Coloca a finalização do carrinho do usuário na fila. Se o usuário já tem uma finalização pendente
+     * (ex.: toque duplo), devolve a mesma em vez de criar outra. Com Idempotency-Key (pode ser null), uma chave
+     * já usada devolve a finalização dela, ou, se ela já saiu da memória, uma finalização CONCLUIDA com o pedido.
+     * Lança IllegalStateException se a fila estiver cheia.
+     */
+    public FinalizacaoPedidoDTO enfileirar(Long userId, String chave) {
+        if (chave != null) {
+            Finalizacao anterior = porChave.get(userId + ":" + chave);
+            if (anterior != null) {
+                return anterior.paraDto();
+            }
+            Optional<PedidoResponseDTO> pedido = idempotenciaPedidoService.recente(userId, chave)
+                    .or(() -> pedidoService.pedidoDaChave(userId, chave));
+            if (pedido.isPresent()) {
+                Finalizacao concluida = new Finalizacao(UUID.randomUUID().toString(), userId, chave);
+                registrar(concluida);
+                concluir(concluida, pedido.get(), null);
+                return concluida.paraDto();
+            }
+        }
+
+        Finalizacao nova = new Finalizacao(UUID.randomUUID().toString(), userId, chave);
+        Finalizacao pendente = pendentesPorUsuario.putIfAbsent(userId, nova);
+        if (pendente != null) {
+            return pendente.paraDto();
+        }
+        registrar(nova);
+        if (!fila.offer(nova)) {
+            porReferencia.remove(nova.referencia);
+            if (chave != null) {
+                porChave.remove(userId + ":" + chave, nova);
+            }
+            pendentesPorUsuario.remove(userId, nova);
+            throw new IllegalStateException("Muitos pedidos sendo finalizados agora. Tente novamente em instantes.");
+        }
+        return nova.paraDto();
+    }
+
+    // Andamento de uma finalização; vazio se a referência não existe, já expirou ou é de outro usuário
+    public Optional<FinalizacaoPedidoDTO> consultar(String referencia, Long userId) {
+        Finalizacao finalizacao = porReferencia.get(referencia);
+        if (finalizacao == null || !finalizacao.userId.equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(finalizacao.paraDto());
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void removerExpiradas() {
+        long limite = System.currentTimeMillis() - retencaoMs;
+        porReferencia.values().removeIf(finalizacao -> finalizacao.concluidaEm != 0 && finalizacao.concluidaEm < limite);
+        porChave.values().removeIf(finalizacao -> finalizacao.concluidaEm != 0 && finalizacao.concluidaEm < limite);
+    }
+
+    private void registrar(Finalizacao finalizacao) {
+        porReferencia.put(finalizacao.referencia, finalizacao);
+        if (finalizacao.chave != null) {
+            porChave.putIfAbsent(finalizacao.userId + ":" + finalizacao.chave, finalizacao);
+        }
+    }
+
+    private void trabalhar() {
+        List<Finalizacao> grupo = new ArrayList<>(tamanhoGrupo);
+        while (!encerrando || !fila.isEmpty()) {
+            try {
+                Finalizacao primeira = fila.poll(500, TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                grupo.add(primeira);
+                fila.drainTo(grupo, tamanhoGrupo - 1);
+                processar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Erro inesperado na finalização de {} pedidos", grupo.size(), e);
+                grupo.forEach(finalizacao -> concluir(finalizacao, null, e));
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    private void processar(List<Finalizacao> grupo) {
+        List<Long> userIds = new ArrayList<>(grupo.size());
+        Map<Long, String> chaves = new HashMap<>();
+        for (Finalizacao finalizacao : grupo) {
+            finalizacao.situacao = Situacao.PROCESSANDO;
+            userIds.add(finalizacao.userId);
+            chaves.put(finalizacao.userId, finalizacao.chave);
+        }
+        logger.debug("Finalizando {} pedidos em grupo", grupo.size());
+        try {
+            List<PedidoService.ResultadoFinalizacao> resultados = pedidoService.finalizarPedidos(userIds, chaves);
+            for (int i = 0; i < grupo.size(); i++) {
+                concluir(grupo.get(i), resultados.get(i).pedido(), resultados.get(i).erro());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Falha ao gravar {} pedidos em grupo, finalizando um a um: {}", grupo.size(), e.getMessage());
+            for (Finalizacao finalizacao : grupo) {
+                try {
+                    concluir(finalizacao, pedidoService.finalizarPedido(finalizacao.userId, finalizacao.chave), null);
+                } catch (RuntimeException erro) {
+                    concluir(finalizacao, null, erro);
+                }
+            }
+        }
+    }
+
+    private void concluir(Finalizacao finalizacao, PedidoResponseDTO pedido, RuntimeException erro) {
+        if (finalizacao.concluidaEm != 0) {
+            return;
+        }
+        finalizacao.pedido = pedido;
+        finalizacao.mensagem = erro == null ? null : erro.getMessage();
+        finalizacao.situacao = erro == null ? Situacao.CONCLUIDA : Situacao.FALHOU;
+        finalizacao.concluidaEm = System.currentTimeMillis();
+        pendentesPorUsuario.remove(finalizacao.userId, finalizacao);
+        if (pedido != null && finalizacao.chave != null) {
+            idempotenciaPedidoService.lembrar(finalizacao.userId, finalizacao.chave, pedido);
+        } else if (finalizacao.chave != null) {
+            porChave.remove(finalizacao.userId + ":" + finalizacao.chave, finalizacao); // Falhou: a chave pode ser tentada de novo
+        }
+    }
+
+    // Alterada só pela thread que processa o grupo; lida pelas consultas
+    private static final class Finalizacao {
+        private final String referencia;
+        private final Long userId;
+        private final String chave; // Idempotency-Key, se informada
+        private volatile Situacao situacao = Situacao.NA_FILA;
+        private volatile PedidoResponseDTO pedido;
+        private volatile String mensagem;
+        private volatile long concluidaEm;
+
+        private Finalizacao(String referencia, Long userId, String chave) {
+            this.referencia = referencia;
+            this.userId = userId;
+            this.chave = chave;
+        }
+
+        // situacao é gravada depois de pedido e mensagem, então uma leitura CONCLUIDA já vê o pedido
+        private FinalizacaoPedidoDTO paraDto() {
+            Situacao atual = situacao;
+            return new FinalizacaoPedidoDTO(referencia, atual.name(), pedido, mensagem);
+        }
+    }
+}
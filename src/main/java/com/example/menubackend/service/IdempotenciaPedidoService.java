@@ -0,0 +1,191 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.PedidoResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key da finalização do pedido: a mesma chave, do mesmo usuário, cria no máximo um pedido.
+ * Em memória ficam os resultados recentes (até app.pedidos.idempotencia.maximo-memoria, os menos usados saem
+ * primeiro) e as finalizações em andamento, para que repetições simultâneas esperem a primeira em vez de
+ * executar de novo. No banco (tabela chave_idempotencia) a chave é gravada na mesma transação do pedido e vale
+ * por app.pedidos.idempotencia.validade-horas; a chave única (usuário, chave) barra duplicatas que escapem da
+ * memória (outra instância, reinício).
+ */
+@Service
+public class IdempotenciaPedidoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaPedidoService.class);
+
+    public static final String CABECALHO = "Idempotency-Key";
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    private static final String BUSCAR_SQL = "SELECT pedido_id, expira_em FROM chave_idempotencia WHERE user_id = ? AND chave = ?";
+    private static final String APAGAR_SQL = "DELETE FROM chave_idempotencia WHERE user_id = ? AND chave = ? AND expira_em < ?";
+    private static final String INSERIR_SQL =
+            "INSERT INTO chave_idempotencia (user_id, chave, pedido_id, criada_em, expira_em) VALUES (?, ?, ?, ?, ?)";
+    private static final String APAGAR_VENCIDAS_SQL = "DELETE FROM chave_idempotencia WHERE expira_em < ? LIMIT 1000";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long validadeHoras;
+    private final Map<String, Resultado> recentes;
+    private final Map<String, CompletableFuture<PedidoResponseDTO>> emAndamento = new ConcurrentHashMap<>();
+
+    public IdempotenciaPedidoService(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.pedidos.idempotencia.validade-horas:24}") long validadeHoras,
+                                     @Value("${app.pedidos.idempotencia.maximo-memoria:10000}") int maximoMemoria) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.validadeHoras = validadeHoras;
+        // Ordem de acesso: ao passar do limite, sai o resultado usado há mais tempo
+        this.recentes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resultado> maisAntigo) {
+                return size() > maximoMemoria;
+            }
+        };
+    }
+
+    // Chave como veio no cabeçalho, conferida; null se não veio
+    public static String validar(String chave) {
+        if (chave == null) {
+            return null;
+        }
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE || !chave.chars().allMatch(c -> c > 0x20 && c < 0x7F)) {
+            throw new IllegalArgumentException("Idempotency-Key inválida: use de 1 a " + TAMANHO_MAXIMO_CHAVE
+                    + " caracteres visíveis, sem espaços.");
+        }
+        return chave;
+    }
+
+    /**
+     * Executa a finalização uma única vez por usuário e chave nesta instância: resultado recente é devolvido
+     * direto da memória e uma repetição simultânea espera a execução em andamento e recebe o mesmo resultado.
+     * Falhas não são guardadas, então a repetição de uma finalização que falhou executa de novo.
+     */
+    public PedidoResponseDTO executar(Long userId, String chave, Supplier<PedidoResponseDTO> finalizacao) {
+        String id = userId + ":" + chave;
+        PedidoResponseDTO recente = recente(id);
+        if (recente != null) {
+            return recente;
+        }
+        CompletableFuture<PedidoResponseDTO> execucao = new CompletableFuture<>();
+        CompletableFuture<PedidoResponseDTO> anterior = emAndamento.putIfAbsent(id, execucao);
+        if (anterior != null) {
+            try {
+                return anterior.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException causa ? causa : e;
+            }
+        }
+        try {
+            PedidoResponseDTO pedido = finalizacao.get();
+            lembrar(userId, chave, pedido);
+            execucao.complete(pedido);
+            return pedido;
+        } catch (RuntimeException e) {
+            execucao.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(id, execucao);
+        }
+    }
+
+    // Resultado guardado em memória para a chave, se ainda válido
+    public Optional<PedidoResponseDTO> recente(Long userId, String chave) {
+        return Optional.ofNullable(recente(userId + ":" + chave));
+    }
+
+    public void lembrar(Long userId, String chave, PedidoResponseDTO pedido) {
+        long expiraEm = System.currentTimeMillis() + validadeHoras * 3_600_000L;
+        synchronized (recentes) {
+            recentes.put(userId + ":" + chave, new Resultado(pedido, expiraEm));
+        }
+    }
+
+    /**
+     * ID do pedido já criado com a chave, consultado no banco. Uma chave vencida é apagada aqui, para poder ser
+     * usada de novo na mesma transação.
+     */
+    public Optional<Long> pedidoDaChave(Long userId, String chave) {
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> encontradas = jdbcTemplate.query(BUSCAR_SQL,
+                (rs, linha) -> new Object[]{rs.getLong("pedido_id"), rs.getTimestamp("expira_em")}, userId, chave);
+        if (encontradas.isEmpty()) {
+            return Optional.empty();
+        }
+        if (((Timestamp) encontradas.get(0)[1]).before(agora)) {
+            jdbcTemplate.update(APAGAR_SQL, userId, chave, agora);
+            return Optional.empty();
+        }
+        return Optional.of((Long) encontradas.get(0)[0]);
+    }
+
+    // Grava as chaves dos pedidos criados, em um lote; roda na transação dos pedidos
+    public void registrar(List<ChaveUsada> chaves) {
+        if (chaves.isEmpty()) {
+            return;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        Timestamp criadaEm = Timestamp.valueOf(agora);
+        Timestamp expiraEm = Timestamp.valueOf(agora.plusHours(validadeHoras));
+        List<Object[]> linhas = new ArrayList<>(chaves.size());
+        chaves.forEach(usada -> linhas.add(new Object[]{usada.userId(), usada.chave(), usada.pedidoId(), criadaEm, expiraEm}));
+        jdbcTemplate.batchUpdate(INSERIR_SQL, linhas);
+    }
+
+    // Chaves vencidas saem do banco e da memória, em lotes curtos
+    @Scheduled(fixedDelayString = "${app.pedidos.idempotencia.intervalo-limpeza-ms:3600000}")
+    public void removerVencidas() {
+        long agora = System.currentTimeMillis();
+        synchronized (recentes) {
+            recentes.values().removeIf(resultado -> resultado.expiraEm() < agora);
+        }
+        Timestamp limite = Timestamp.valueOf(LocalDateTime.now());
+        int removidas = 0;
+        int lote;
+        do {
+            lote = jdbcTemplate.update(APAGAR_VENCIDAS_SQL, limite);
+            removidas += lote;
+        } while (lote > 0);
+        if (removidas > 0) {
+            logger.info("{} chaves de idempotência vencidas removidas", removidas);
+        }
+    }
+
+    private PedidoResponseDTO recente(String id) {
+        synchronized (recentes) {
+            Resultado resultado = recentes.get(id);
+            if (resultado == null) {
+                return null;
+            }
+            if (resultado.expiraEm() < System.currentTimeMillis()) {
+                recentes.remove(id);
+                return null;
+            }
+            return resultado.pedido();
+        }
+    }
+
+    public record ChaveUsada(Long userId, String chave, Long pedidoId) {
+    }
+
+    private record Resultado(PedidoResponseDTO pedido, long expiraEm) {
+    }
+}
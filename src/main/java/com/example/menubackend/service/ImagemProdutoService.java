@@ -0,0 +1,310 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.repository.ProdutoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Armazena as imagens dos produtos em disco local e gera as variantes redimensionadas em segundo plano.
+ * Cada upload recebe uma versão; a versão só passa a valer para o produto depois que todas as variantes
+ * foram gravadas, então as URLs publicadas no cardápio sempre apontam para arquivos existentes.
+ */
+@Service
+public class ImagemProdutoService {
+
+    public enum Variante {
+        MINIATURA(160, true), // Quadrada, recortada ao centro
+        MEDIA(640, false); // Mantém a proporção, lado maior limitado
+
+        private final int tamanho;
+        private final boolean quadrada;
+
+        Variante(int tamanho, boolean quadrada) {
+            this.tamanho = tamanho;
+            this.quadrada = quadrada;
+        }
+
+        public String parametro() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagemProdutoService.class);
+
+    private static final String ORIGINAL = "original";
+    private static final long MAX_PIXELS = 40_000_000L; // Protege contra imagens que explodem em memória ao decodificar
+
+    private final ProdutoRepository produtoRepository;
+    private final CardapioSnapshotService cardapioSnapshotService;
+    private final Path diretorio;
+    private final float qualidadeJpeg;
+    private final ThreadPoolExecutor processamento;
+
+    // Versões crescentes mesmo com uploads no mesmo milissegundo
+    private final AtomicLong ultimaVersao = new AtomicLong(System.currentTimeMillis());
+
+    public ImagemProdutoService(ProdutoRepository produtoRepository, CardapioSnapshotService cardapioSnapshotService,
+                                @Value("${app.imagens.diretorio:imagens}") String diretorio,
+                                @Value("${app.imagens.qualidade-jpeg:0.82}") float qualidadeJpeg,
+                                @Value("${app.imagens.fila:50}") int capacidadeFila) {
+        this.produtoRepository = produtoRepository;
+        this.cardapioSnapshotService = cardapioSnapshotService;
+        this.diretorio = Paths.get(diretorio).toAbsolutePath().normalize();
+        this.qualidadeJpeg = qualidadeJpeg;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.processamento = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "imagens-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        processamento.shutdown();
+    }
+
+    /**
+     * Grava o arquivo enviado como original de uma nova versão e agenda a geração das variantes.
+     * Lança IllegalArgumentException se o conteúdo não for uma imagem suportada e
+     * RejectedExecutionException se a fila de processamento estiver cheia.
+     */
+    public long receber(Long produtoId, InputStream conteudo) throws IOException {
+        long versao = ultimaVersao.updateAndGet(anterior -> Math.max(anterior + 1, System.currentTimeMillis()));
+        Path pasta = Files.createDirectories(pastaDoProduto(produtoId));
+        Path temporario = Files.createTempFile(pasta, "tmp-", ".upload");
+        try {
+            Files.copy(conteudo, temporario, StandardCopyOption.REPLACE_EXISTING);
+            validar(temporario);
+            Path original = pasta.resolve(nomeArquivo(versao, ORIGINAL));
+            Files.move(temporario, original, StandardCopyOption.ATOMIC_MOVE);
+            processamento.execute(() -> gerarVariantes(produtoId, versao, original));
+            return versao;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            Files.deleteIfExists(pasta.resolve(nomeArquivo(versao, ORIGINAL)));
+            throw e;
+        }
+    }
+
+    // Arquivo da variante em disco; pode não existir se a versão já foi substituída
+    public Path arquivo(Long produtoId, long versao, Variante variante) {
+        return pastaDoProduto(produtoId).resolve(nomeArquivo(versao, variante.parametro()) + ".jpg");
+    }
+
+    // Remove todas as imagens locais de um produto (usado quando o produto é excluído)
+    public void removerImagens(Long produtoId) {
+        Path pasta = pastaDoProduto(produtoId);
+        if (!Files.isDirectory(pasta)) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.walk(pasta)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(caminho -> {
+                try {
+                    Files.deleteIfExists(caminho);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Falha ao remover imagens do produto {}: {}", produtoId, e.getMessage());
+        }
+    }
+
+    // URL local de uma variante; a versão na query string permite cache imutável no cliente
+    public static String url(Long produtoId, long versao, Variante variante) {
+        return "/api/produtos/" + produtoId + "/imagem?variante=" + variante.parametro() + "&v=" + versao;
+    }
+
+    public static void preencherUrls(ProdutoDTO dto, Long imagemVersao) {
+        dto.setImagemVersao(imagemVersao);
+        if (imagemVersao != null) {
+            dto.setImagemMiniatura(url(dto.getId(), imagemVersao, Variante.MINIATURA));
+            dto.setImagemMedia(url(dto.getId(), imagemVersao, Variante.MEDIA));
+        }
+    }
+
+    private void gerarVariantes(Long produtoId, long versao, Path original) {
+        Path pasta = original.getParent();
+        try {
+            BufferedImage imagem = ImageIO.read(original.toFile());
+            if (imagem == null) {
+                throw new IOException("Formato de imagem não suportado");
+            }
+            for (Variante variante : Variante.values()) {
+                gravarJpeg(redimensionar(imagem, variante), arquivo(produtoId, versao, variante));
+            }
+
+            // Só publica a versão se nenhuma mais nova já tiver sido publicada
+            if (produtoRepository.atualizarImagemVersao(produtoId, versao) == 0) {
+                logger.info("Imagem versão {} do produto {} descartada: produto removido ou versão mais nova publicada", versao, produtoId);
+                removerVersao(pasta, versao);
+                return;
+            }
+            cardapioSnapshotService.produtoAlterado(produtoId);
+            removerVersoesAnteriores(pasta, versao);
+            logger.info("Imagem do produto {} publicada na versão {}", produtoId, versao);
+        } catch (Exception e) {
+            logger.error("Falha ao processar imagem do produto {} (versão {})", produtoId, versao, e);
+            removerVersao(pasta, versao);
+        }
+    }
+
+    private void validar(Path arquivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(arquivo.toFile())) {
+            Iterator<ImageReader> leitores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (leitores == null || !leitores.hasNext()) {
+                throw new IllegalArgumentException("O arquivo enviado não é uma imagem suportada (JPEG, PNG, GIF ou BMP).");
+            }
+            ImageReader leitor = leitores.next();
+            try {
+                // Lê apenas o cabeçalho para obter as dimensões, sem decodificar a imagem
+                leitor.setInput(entrada, true, true);
+                long pixels = (long) leitor.getWidth(0) * leitor.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Imagem muito grande: " + leitor.getWidth(0) + "x" + leitor.getHeight(0));
+                }
+            } finally {
+                leitor.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage redimensionar(BufferedImage origem, Variante variante) {
+        int largura = origem.getWidth();
+        int altura = origem.getHeight();
+        BufferedImage atual = origem;
+        int larguraFinal;
+        int alturaFinal;
+        if (variante.quadrada) {
+            int lado = Math.min(largura, altura);
+            atual = origem.getSubimage((largura - lado) / 2, (altura - lado) / 2, lado, lado);
+            larguraFinal = alturaFinal = Math.min(variante.tamanho, lado);
+        } else {
+            double escala = Math.min(1.0, (double) variante.tamanho / Math.max(largura, altura));
+            larguraFinal = Math.max(1, (int) Math.round(largura * escala));
+            alturaFinal = Math.max(1, (int) Math.round(altura * escala));
+        }
+
+        // Reduções sucessivas pela metade evitam o serrilhado da interpolação bilinear em fatores grandes
+        while (atual.getWidth() / 2 >= larguraFinal && atual.getHeight() / 2 >= alturaFinal) {
+            atual = desenhar(atual, atual.getWidth() / 2, atual.getHeight() / 2);
+        }
+        return desenhar(atual, larguraFinal, alturaFinal);
+    }
+
+    private static BufferedImage desenhar(BufferedImage origem, int largura, int altura) {
+        BufferedImage destino = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+        Graphics2D grafico = destino.createGraphics();
+        try {
+            grafico.setColor(Color.WHITE); // JPEG não tem transparência
+            grafico.fillRect(0, 0, largura, altura);
+            grafico.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            grafico.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            grafico.drawImage(origem, 0, 0, largura, altura, null);
+        } finally {
+            grafico.dispose();
+        }
+        return destino;
+    }
+
+    // Grava em arquivo temporário e move, para que leitores nunca vejam um JPEG pela metade
+    private void gravarJpeg(BufferedImage imagem, Path destino) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temporario = Files.createTempFile(destino.getParent(), "tmp-", ".jpg");
+        try {
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(qualidadeJpeg);
+            try (ImageOutputStream saida = ImageIO.createImageOutputStream(temporario.toFile())) {
+                escritor.setOutput(saida);
+                escritor.write(null, new IIOImage(imagem, null, null), parametros);
+            }
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            escritor.dispose();
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    private void removerVersoesAnteriores(Path pasta, long versao) {
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta)) {
+            for (Path arquivo : arquivos) {
+                Long versaoArquivo = versaoDoArquivo(arquivo);
+                if (versaoArquivo != null && versaoArquivo < versao) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Falha ao limpar versões antigas em {}: {}", pasta, e.getMessage());
+        }
+    }
+
+    private void removerVersao(Path pasta, long versao) {
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, versao + "-*")) {
+            for (Path arquivo : arquivos) {
+                Files.deleteIfExists(arquivo);
+            }
+        } catch (IOException e) {
+            logger.warn("Falha ao remover a versão {} em {}: {}", versao, pasta, e.getMessage());
+        }
+    }
+
+    // Arquivos seguem o padrão "<versão>-<variante>"; temporários e desconhecidos retornam null
+    private static Long versaoDoArquivo(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        int separador = nome.indexOf('-');
+        if (separador <= 0) {
+            return null;
+        }
+        try {
+            return Long.parseLong(nome.substring(0, separador));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Path pastaDoProduto(Long produtoId) {
+        return diretorio.resolve(String.valueOf(produtoId));
+    }
+
+    private static String nomeArquivo(long versao, String variante) {
+        return versao + "-" + variante;
+    }
+}
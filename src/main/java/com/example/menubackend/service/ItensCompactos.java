@@ -0,0 +1,246 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.ItemCarrinhoResponseDTO;
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Dinheiro;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Itens de um carrinho no layout compacto: uma única coluna binária na própria linha do carrinho
+ * (carrinho.itens_compactos), em vez de uma linha de item_carrinho por produto.
+ *
+ * Formato (versão 1): um byte com a versão, seguido de inteiros sem sinal em comprimento variável
+ * (7 bits por byte, o bit mais alto indica continuação): próximo ID de item, quantidade de itens e,
+ * para cada item, ID, ID do produto, quantidade e preço unitário em centavos. Um item típico ocupa
+ * menos de 10 bytes. Os IDs de item são do carrinho: os itens trazidos de item_carrinho mantêm o ID
+ * que já tinham e os novos continuam a partir do maior deles.
+ *
+ * Usado pelo carrinho compacto (coluna no banco) e pelo carrinho de visitante (token assinado no cliente).
+ */
+final class ItensCompactos {
+
+    static final byte VERSAO = 1;
+
+    private final Map<Long, Item> itens = new LinkedHashMap<>(); // Por ID do produto
+    private long proximoId = 1;
+
+    static ItensCompactos decodificar(byte[] dados) {
+        ItensCompactos compactos = new ItensCompactos();
+        if (dados == null || dados.length == 0) {
+            return compactos;
+        }
+        if (dados[0] != VERSAO) {
+            throw new IllegalStateException("Versão desconhecida dos itens compactos do carrinho: " + dados[0]);
+        }
+        Leitor leitor = new Leitor(dados);
+        compactos.proximoId = leitor.ler();
+        long quantidadeItens = leitor.ler();
+        for (long i = 0; i < quantidadeItens; i++) {
+            long id = leitor.ler();
+            long produtoId = leitor.ler();
+            int quantidade = Math.toIntExact(leitor.ler());
+            Dinheiro precoUnitario = Dinheiro.deCentavos(leitor.ler());
+            compactos.itens.put(produtoId, new Item(id, produtoId, precoUnitario, quantidade));
+        }
+        return compactos;
+    }
+
+    byte[] codificar() {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(4 + itens.size() * 10);
+        saida.write(VERSAO);
+        escrever(saida, proximoId);
+        escrever(saida, itens.size());
+        for (Item item : itens.values()) {
+            escrever(saida, item.id);
+            escrever(saida, item.produtoId);
+            escrever(saida, item.quantidade);
+            escrever(saida, item.precoUnitario.centavos());
+        }
+        return saida.toByteArray();
+    }
+
+    Collection<Item> itens() {
+        return itens.values();
+    }
+
+    // Quantidade de cada item, por ID do item
+    Map<Long, Integer> quantidades() {
+        Map<Long, Integer> quantidades = new HashMap<>();
+        itens.values().forEach(item -> quantidades.put(item.id, item.quantidade));
+        return quantidades;
+    }
+
+    boolean isVazio() {
+        return itens.isEmpty();
+    }
+
+    // Traz um item já existente (ex.: linha de item_carrinho na migração), mantendo o ID; o mesmo produto soma
+    void incluir(long id, long produtoId, int quantidade, Dinheiro precoUnitario) {
+        Item existente = itens.get(produtoId);
+        if (existente != null) {
+            existente.quantidade += quantidade;
+        } else {
+            itens.put(produtoId, new Item(id, produtoId, precoUnitario, quantidade));
+        }
+        proximoId = Math.max(proximoId, id + 1);
+    }
+
+    void adicionar(long produtoId, Dinheiro precoUnitario, int quantidade) {
+        Item item = itens.get(produtoId);
+        if (item == null) {
+            if (quantidade <= 0) {
+                return;
+            }
+            item = new Item(proximoId++, produtoId, precoUnitario, 0);
+            itens.put(produtoId, item);
+        }
+        atualizar(item, item.quantidade + quantidade);
+    }
+
+    // Inclusão validada no snapshot do cardápio, com o preço atual do produto
+    void adicionar(CardapioSnapshot snapshot, Long produtoId, int quantidade) {
+        ProdutoDTO produto = produtoDisponivel(snapshot, produtoId);
+        adicionar(produto.getId(), produto.getPreco(), quantidade);
+    }
+
+    // Lote já validado pelo CarrinhoService; quem chama descarta os itens se alguma operação falhar
+    void aplicar(List<OperacaoCarrinhoDTO> operacoes, CardapioSnapshot snapshot) {
+        for (int i = 0; i < operacoes.size(); i++) {
+            OperacaoCarrinhoDTO operacao = operacoes.get(i);
+            try {
+                switch (operacao.getTipo()) {
+                    case ADICIONAR -> adicionar(snapshot, operacao.getProdutoId(), operacao.getQuantidade());
+                    case ATUALIZAR -> atualizar(localizar(operacao), operacao.getQuantidade());
+                    case REMOVER -> remover(localizar(operacao));
+                }
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Operação " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    void atualizar(Item item, int quantidade) {
+        item.quantidade = quantidade;
+        if (item.quantidade <= 0) {
+            remover(item);
+        }
+    }
+
+    void remover(Item item) {
+        itens.remove(item.produtoId);
+    }
+
+    void limpar() {
+        itens.clear();
+    }
+
+    Item buscar(Long itemId) {
+        for (Item item : itens.values()) {
+            if (itemId != null && item.id == itemId) {
+                return item;
+            }
+        }
+        throw new RuntimeException("Item do carrinho não encontrado com ID: " + itemId);
+    }
+
+    // Item de uma operação do lote, pelo ID do item ou pelo produto
+    Item localizar(OperacaoCarrinhoDTO operacao) {
+        if (operacao.getItemId() != null) {
+            return buscar(operacao.getItemId());
+        }
+        Item item = itens.get(operacao.getProdutoId());
+        if (item == null) {
+            throw new RuntimeException("Produto não está no carrinho: " + operacao.getProdutoId());
+        }
+        return item;
+    }
+
+    // Itens e total no formato de resposta do carrinho; nome e imagem vêm do snapshot, sem consultar produto
+    CarrinhoResponseDTO paraDto(CardapioSnapshot snapshot) {
+        CarrinhoResponseDTO carrinhoDTO = new CarrinhoResponseDTO();
+        List<ItemCarrinhoResponseDTO> itemDTOs = new ArrayList<>(itens.size());
+        long valorTotal = 0;
+        for (Item item : itens.values()) {
+            ProdutoDTO produto = snapshot.getProduto(item.produtoId);
+            ItemCarrinhoResponseDTO itemCarrinhoDTO = new ItemCarrinhoResponseDTO();
+            itemCarrinhoDTO.setId(item.id);
+            itemCarrinhoDTO.setProdutoId(item.produtoId);
+            itemCarrinhoDTO.setNomeProduto(produto == null ? null : produto.getNome());
+            itemCarrinhoDTO.setImagemProduto(produto == null ? null : produto.getImagem());
+            itemCarrinhoDTO.setQuantidade(item.quantidade);
+            itemCarrinhoDTO.setPrecoUnitario(item.precoUnitario);
+            itemCarrinhoDTO.setSubtotal(item.precoUnitario.vezes(item.quantidade));
+            valorTotal = Math.addExact(valorTotal, itemCarrinhoDTO.getSubtotal().centavos());
+            itemDTOs.add(itemCarrinhoDTO);
+        }
+        carrinhoDTO.setItens(itemDTOs);
+        carrinhoDTO.setValorTotal(Dinheiro.deCentavos(valorTotal));
+        return carrinhoDTO;
+    }
+
+    static ProdutoDTO produtoDisponivel(CardapioSnapshot snapshot, Long produtoId) {
+        ProdutoDTO produto = snapshot.getProduto(produtoId);
+        if (produto == null) {
+            throw new RuntimeException("Produto não encontrado com ID: " + produtoId);
+        }
+        if (!Boolean.TRUE.equals(produto.getDisponibilidade())) {
+            throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
+        }
+        return produto;
+    }
+
+    private static void escrever(ByteArrayOutputStream saida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            saida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.write((int) valor);
+    }
+
+    static final class Item {
+        final long id;
+        final long produtoId;
+        final Dinheiro precoUnitario;
+        int quantidade;
+
+        private Item(long id, long produtoId, Dinheiro precoUnitario, int quantidade) {
+            this.id = id;
+            this.produtoId = produtoId;
+            this.precoUnitario = precoUnitario;
+            this.quantidade = quantidade;
+        }
+    }
+
+    private static final class Leitor {
+        private final byte[] dados;
+        private int posicao = 1; // Depois do byte de versão
+
+        private Leitor(byte[] dados) {
+            this.dados = dados;
+        }
+
+        private long ler() {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                if (posicao >= dados.length) {
+                    throw new IllegalStateException("Itens compactos do carrinho truncados");
+                }
+                byte b = dados[posicao++];
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalStateException("Itens compactos do carrinho corrompidos");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.model.Dinheiro;
+
+/**
+ * Item do carrinho no momento em que foi lido para virar pedido, independente de onde o carrinho vive
+ * (banco ou memória).
+ */
+public record LinhaCarrinho(Long itemId, Long produtoId, int quantidade, Dinheiro precoUnitario) {
+}
@@ -0,0 +1,207 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.model.Dinheiro;
+import com.example.menubackend.model.StatusPedido;
+import com.example.menubackend.service.CatalogoImportExportService.Formato;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exportação completa dos pedidos com seus itens (NDJSON ou CSV), para a contabilidade.
+ * Uma única consulta (pedido, usuário e itens) é percorrida em streaming e cada linha é escrita na saída
+ * assim que lida, sem montar entidades nem DTOs: a memória usada não depende da quantidade de pedidos.
+ */
+@Service
+public class PedidoExportacaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoExportacaoService.class);
+
+    private static final String[] COLUNAS = {"pedido_id", "user_id", "user_name", "data_pedido", "status", "valor_total",
+            "item_id", "produto_id", "nome_produto", "quantidade", "preco_unitario", "subtotal"};
+
+    // STRAIGHT_JOIN fixa pedido como primeira tabela: sem filtros, o banco percorre a chave primária de pedido
+    // e busca os itens pelo índice de pedido_id, entregando as linhas já agrupadas e em ordem, sem ordenar o
+    // resultado inteiro antes da primeira linha (com poucos usuários, o otimizador começaria por users e ordenaria tudo)
+    private static final String EXPORT_SQL =
+            "SELECT STRAIGHT_JOIN p.id, p.user_id, u.name, p.data_pedido, p.status, p.valor_total, " +
+            "ip.id AS item_id, ip.produto_id, pr.nome AS nome_produto, ip.quantidade, ip.preco_unitario " +
+            "FROM pedido p JOIN users u ON u.id = p.user_id " +
+            "LEFT JOIN item_pedido ip ON ip.pedido_id = p.id " +
+            "LEFT JOIN produto pr ON pr.id = ip.produto_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public PedidoExportacaoService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Escreve os pedidos, do mais antigo para o mais novo, com filtros opcionais de status e período
+     * (de inclusive, ate exclusive). NDJSON: um objeto por pedido, com os itens aninhados. CSV: uma linha
+     * por item, repetindo os dados do pedido (pedido sem itens sai em uma linha com as colunas de item vazias).
+     */
+    public void exportar(OutputStream saida, Formato formato, StatusPedido status, LocalDateTime de, LocalDateTime ate)
+            throws IOException {
+        long inicio = System.currentTimeMillis();
+        long pedidos = formato == Formato.NDJSON
+                ? exportarNdjson(saida, status, de, ate)
+                : exportarCsv(saida, status, de, ate);
+        logger.info("Exportação de pedidos ({}): {} pedidos em {} ms", formato, pedidos, System.currentTimeMillis() - inicio);
+    }
+
+    private long exportarNdjson(OutputStream saida, StatusPedido status, LocalDateTime de, LocalDateTime ate) throws IOException {
+        long[] pedidos = {0};
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+            gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gerador.setRootValueSeparator(null); // Cada objeto termina com '\n', sem o espaço padrão entre raízes
+            long[] pedidoAtual = {0};
+            percorrerPedidos(status, de, ate, rs -> {
+                try {
+                    long pedidoId = rs.getLong("id");
+                    if (pedidoId != pedidoAtual[0]) {
+                        if (pedidoAtual[0] != 0) {
+                            encerrarPedido(gerador);
+                        }
+                        pedidoAtual[0] = pedidoId;
+                        pedidos[0]++;
+                        gerador.writeStartObject();
+                        gerador.writeNumberField("id", pedidoId);
+                        gerador.writeNumberField("userId", rs.getLong("user_id"));
+                        gerador.writeStringField("userName", rs.getString("name"));
+                        gerador.writeStringField("dataPedido", dataPedido(rs));
+                        gerador.writeStringField("status", rs.getString("status"));
+                        gerador.writeFieldName("valorTotal");
+                        gerador.writeNumber(Dinheiro.deCentavos(rs.getLong("valor_total")).toString());
+                        gerador.writeArrayFieldStart("itens");
+                    }
+                    long itemId = rs.getLong("item_id");
+                    if (!rs.wasNull()) {
+                        Dinheiro precoUnitario = Dinheiro.deCentavos(rs.getLong("preco_unitario"));
+                        int quantidade = rs.getInt("quantidade");
+                        gerador.writeStartObject();
+                        gerador.writeNumberField("id", itemId);
+                        gerador.writeNumberField("produtoId", rs.getLong("produto_id"));
+                        gerador.writeStringField("nomeProduto", rs.getString("nome_produto"));
+                        gerador.writeNumberField("quantidade", quantidade);
+                        gerador.writeFieldName("precoUnitario");
+                        gerador.writeNumber(precoUnitario.toString());
+                        gerador.writeFieldName("subtotal");
+                        gerador.writeNumber(precoUnitario.vezes(quantidade).toString());
+                        gerador.writeEndObject();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (pedidoAtual[0] != 0) {
+                encerrarPedido(gerador);
+            }
+        }
+        return pedidos[0];
+    }
+
+    private static void encerrarPedido(JsonGenerator gerador) throws IOException {
+        gerador.writeEndArray();
+        gerador.writeEndObject();
+        gerador.writeRaw('\n');
+    }
+
+    private long exportarCsv(OutputStream saida, StatusPedido status, LocalDateTime de, LocalDateTime ate) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        escritor.write(String.join(",", COLUNAS));
+        escritor.write('\n');
+        long[] pedidos = {0};
+        long[] pedidoAtual = {0};
+        percorrerPedidos(status, de, ate, rs -> {
+            try {
+                long pedidoId = rs.getLong("id");
+                if (pedidoId != pedidoAtual[0]) {
+                    pedidoAtual[0] = pedidoId;
+                    pedidos[0]++;
+                }
+                StringBuilder linha = new StringBuilder(128)
+                        .append(pedidoId).append(',')
+                        .append(rs.getLong("user_id")).append(',')
+                        .append(CatalogoImportExportService.campoCsv(rs.getString("name"))).append(',')
+                        .append(dataPedido(rs)).append(',')
+                        .append(rs.getString("status")).append(',')
+                        .append(Dinheiro.deCentavos(rs.getLong("valor_total"))).append(',');
+                long itemId = rs.getLong("item_id");
+                if (rs.wasNull()) {
+                    linha.append(",,,,,");
+                } else {
+                    Dinheiro precoUnitario = Dinheiro.deCentavos(rs.getLong("preco_unitario"));
+                    int quantidade = rs.getInt("quantidade");
+                    linha.append(itemId).append(',')
+                            .append(rs.getLong("produto_id")).append(',')
+                            .append(CatalogoImportExportService.campoCsv(rs.getString("nome_produto"))).append(',')
+                            .append(quantidade).append(',')
+                            .append(precoUnitario).append(',')
+                            .append(precoUnitario.vezes(quantidade));
+                }
+                escritor.write(linha.append('\n').toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        escritor.flush();
+        return pedidos[0];
+    }
+
+    // Mesmo formato de data e hora das respostas JSON (sempre com os segundos)
+    private static String dataPedido(ResultSet rs) throws SQLException {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(rs.getTimestamp("data_pedido").toLocalDateTime());
+    }
+
+    // Lê os pedidos em streaming: com fetch size Integer.MIN_VALUE o driver MySQL entrega uma linha por vez
+    // do cursor (somente para frente, somente leitura), em vez de carregar o resultado inteiro no cliente
+    private void percorrerPedidos(StatusPedido status, LocalDateTime de, LocalDateTime ate, RowCallbackHandler tratador) {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            args.add(status.name());
+        }
+        if (de != null) {
+            sql.append(" AND p.data_pedido >= ?");
+            args.add(Timestamp.valueOf(de));
+        }
+        if (ate != null) {
+            sql.append(" AND p.data_pedido < ?");
+            args.add(Timestamp.valueOf(ate));
+        }
+        sql.append(" ORDER BY p.id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, tratador);
+    }
+}
@@ -1,26 +1,49 @@
 package com.example.menubackend.service;
 
+import com.example.menubackend.dto.ItemPedidoRequestDTO;
 import com.example.menubackend.dto.ItemPedidoResponseDTO;
+import com.example.menubackend.dto.PaginaDTO;
+import com.example.menubackend.dto.PedidoRequestDTO;
 import com.example.menubackend.dto.PedidoResponseDTO;
-import com.example.menubackend.model.Carrinho;
-import com.example.menubackend.model.ItemCarrinho;
+import com.example.menubackend.model.Dinheiro;
 import com.example.menubackend.model.ItemPedido;
 import com.example.menubackend.model.Pedido;
+import com.example.menubackend.model.Produto;
 import com.example.menubackend.model.StatusPedido; // Certifique-se de que StatusPedido tem PENDENTE
 import com.example.menubackend.model.User;
-import com.example.menubackend.repository.CarrinhoRepository;
-import com.example.menubackend.repository.ItemCarrinhoRepository;
 import com.example.menubackend.repository.ItemPedidoRepository;
 import com.example.menubackend.repository.PedidoRepository;
+import com.example.menubackend.repository.ProdutoRepository;
 import com.example.menubackend.repository.UserRepository;
+import com.example.menubackend.service.IdempotenciaPedidoService.ChaveUsada;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,55 +56,346 @@ public class PedidoService {
     private ItemPedidoRepository itemPedidoRepository;
 
     @Autowired
-    private CarrinhoRepository carrinhoRepository;
+    private CarrinhoService carrinhoService;
 
     @Autowired
-    private ItemCarrinhoRepository itemCarrinhoRepository;
+    private ProdutoRepository produtoRepository;
 
     @Autowired
     private UserRepository userRepository;
 
-    @Transactional // Garante que toda a operação de finalização seja atômica
+    @Autowired
+    private RetentativaTransacaoService retentativaTransacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotenciaPedidoService idempotenciaPedidoService;
+
+    @Autowired
+    private CozinhaService cozinhaService;
+
+    @Value("${app.pedidos.rapido.maximo-itens:100}")
+    private int maximoItensPedidoRapido;
+
+    @Value("${app.pedidos.pagina.tamanho-maximo:100}")
+    private int tamanhoMaximoPagina;
+
+    private static final String INSERIR_PEDIDO_SQL =
+            "INSERT INTO pedido (user_id, data_pedido, status, valor_total) VALUES (?, ?, ?, ?)";
+    private static final String INSERIR_ITEM_SQL =
+            "INSERT INTO item_pedido (pedido_id, produto_id, quantidade, preco_unitario) VALUES (?, ?, ?, ?)";
+
+    // Listagem administrativa: pedidos com o nome do usuário em uma consulta e os itens de vários pedidos em outra
+    private static final String SELECIONAR_PEDIDOS_SQL =
+            "SELECT p.id, p.user_id, u.name, p.data_pedido, p.status, p.valor_total " +
+            "FROM pedido p JOIN users u ON u.id = p.user_id";
+    private static final String SELECIONAR_ITENS_SQL =
+            "SELECT ip.id, ip.pedido_id, ip.produto_id, pr.nome, pr.imagem, ip.quantidade, ip.preco_unitario " +
+            "FROM item_pedido ip JOIN produto pr ON pr.id = ip.produto_id " +
+            "WHERE ip.pedido_id IN (%s) ORDER BY ip.pedido_id, ip.id";
+    private static final int PEDIDOS_POR_CONSULTA_ITENS = 500;
+
+    // Pedidos ativos já gravados, para a fila da cozinha começar completa
+    @PostConstruct
+    void carregarFilaCozinha() {
+        List<PedidoResponseDTO> ativos = jdbcTemplate.query(SELECIONAR_PEDIDOS_SQL + " WHERE p.status = ? ORDER BY p.id",
+                this::mapearPedido, StatusPedido.PENDENTE.name());
+        preencherItens(ativos);
+        cozinhaService.carregar(ativos);
+    }
+
+    /** Resultado de um carrinho na finalização em grupo: o pedido criado ou o motivo de não ter virado pedido. */
+    public record ResultadoFinalizacao(PedidoResponseDTO pedido, RuntimeException erro) {
+    }
+
+    // Transação própria, refeita se o carrinho for alterado por outra requisição durante a finalização
     public PedidoResponseDTO finalizarPedido(Long userId) {
+        return retentativaTransacaoService.executar(() -> criarPedidoDoCarrinho(userId));
+    }
+
+    /**
+     * Finalização com Idempotency-Key: a mesma chave do mesmo usuário devolve o pedido já criado com ela em vez
+     * de criar outro (ou de falhar por carrinho vazio). A chave é conferida e gravada na transação do pedido;
+     * se duas requisições com a mesma chave passarem juntas pela conferência, a segunda viola a chave única ao
+     * gravar, é refeita e encontra o pedido da primeira.
+     */
+    public PedidoResponseDTO finalizarPedido(Long userId, String chave) {
+        if (chave == null) {
+            return finalizarPedido(userId);
+        }
+        return idempotenciaPedidoService.executar(userId, chave, () -> retentativaTransacaoService.executar(() -> {
+            Optional<PedidoResponseDTO> anterior = pedidoDaChave(userId, chave);
+            if (anterior.isPresent()) {
+                return anterior.get();
+            }
+            PedidoResponseDTO pedido = criarPedidoDoCarrinho(userId);
+            idempotenciaPedidoService.registrar(List.of(new ChaveUsada(userId, chave, pedido.getId())));
+            return pedido;
+        }));
+    }
+
+    // Pedido já criado com a Idempotency-Key, no estado atual
+    public Optional<PedidoResponseDTO> pedidoDaChave(Long userId, String chave) {
+        return idempotenciaPedidoService.pedidoDaChave(userId, chave)
+                .flatMap(pedidoRepository::findById)
+                .map(this::convertToDto);
+    }
+
+    private PedidoResponseDTO criarPedidoDoCarrinho(Long userId) {
+        // Itens do carrinho no estado mais recente, esteja ele no banco ou em memória
+        List<LinhaCarrinho> linhas = carrinhoService.linhasDoCarrinho(userId);
+
+        if (linhas.isEmpty()) {
+            throw new RuntimeException("O carrinho está vazio. Não é possível finalizar o pedido.");
+        }
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+        // Todos os produtos do pedido em uma consulta
+        Map<Long, Produto> produtos = produtoRepository.findAllById(linhas.stream().map(LinhaCarrinho::produtoId).toList())
+                .stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
 
-        Carrinho carrinho = carrinhoRepository.findByUsuarioId(userId)
-                .orElseThrow(() -> new RuntimeException("Carrinho não encontrado para o usuário: " + userId));
+        Pedido savedPedido = salvarPedido(user, linhas, produtos);
 
-        if (carrinho.getItens().isEmpty()) {
-            throw new RuntimeException("O carrinho está vazio. Não é possível finalizar o pedido.");
+        // Após finalizar o pedido, retira do carrinho os itens pedidos
+        carrinhoService.removerLinhasPedidas(userId, linhas);
+
+        PedidoResponseDTO pedidoDTO = convertToDto(savedPedido);
+        cozinhaService.registrar(pedidoDTO);
+        return pedidoDTO;
+    }
+
+    /**
+     * Finaliza os carrinhos de vários usuários (distintos) em uma única transação: uma consulta para os usuários,
+     * uma para todos os produtos e os pedidos e itens gravados em dois lotes JDBC, em vez de uma transação e
+     * um INSERT por item para cada pedido. Retorna, na ordem recebida, o pedido de cada usuário ou o motivo de
+     * o carrinho não ter virado pedido (ex.: vazio), sem afetar os demais. As Idempotency-Keys informadas
+     * (por usuário) são gravadas no mesmo lote. Se a gravação do grupo falhar (ex.: carrinho alterado durante a
+     * finalização), nada é gravado e a exceção sobe: quem chama refaz os pedidos um a um com finalizarPedido.
+     */
+    @Transactional
+    public List<ResultadoFinalizacao> finalizarPedidos(List<Long> userIds, Map<Long, String> chaves) {
+        Map<Long, User> usuarios = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<Long, List<LinhaCarrinho>> linhasPorUsuario = new LinkedHashMap<>();
+        Map<Long, RuntimeException> erros = new HashMap<>();
+        for (Long userId : userIds) {
+            try {
+                if (!usuarios.containsKey(userId)) {
+                    throw new RuntimeException("Usuário não encontrado com ID: " + userId);
+                }
+                List<LinhaCarrinho> linhas = carrinhoService.linhasDoCarrinho(userId);
+                if (linhas.isEmpty()) {
+                    throw new RuntimeException("O carrinho está vazio. Não é possível finalizar o pedido.");
+                }
+                linhasPorUsuario.put(userId, linhas);
+            } catch (RuntimeException e) {
+                erros.put(userId, e);
+            }
+        }
+
+        Set<Long> produtoIds = new HashSet<>();
+        linhasPorUsuario.values().forEach(linhas -> linhas.forEach(linha -> produtoIds.add(linha.produtoId())));
+        Map<Long, Produto> produtos = produtoIds.isEmpty() ? Map.of() : produtoRepository.findAllById(produtoIds).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+
+        Map<Long, Pedido> pedidos = new LinkedHashMap<>();
+        linhasPorUsuario.forEach((userId, linhas) -> {
+            try {
+                pedidos.put(userId, montarPedido(usuarios.get(userId), linhas, produtos));
+            } catch (RuntimeException e) {
+                erros.put(userId, e);
+            }
+        });
+
+        if (!pedidos.isEmpty()) {
+            inserirEmLote(List.copyOf(pedidos.values()));
+            List<ChaveUsada> chavesUsadas = new ArrayList<>();
+            pedidos.forEach((userId, pedido) -> {
+                carrinhoService.removerLinhasPedidas(userId, linhasPorUsuario.get(userId));
+                if (chaves.get(userId) != null) {
+                    chavesUsadas.add(new ChaveUsada(userId, chaves.get(userId), pedido.getId()));
+                }
+            });
+            idempotenciaPedidoService.registrar(chavesUsadas);
+        }
+
+        List<ResultadoFinalizacao> resultados = new ArrayList<>(userIds.size());
+        List<PedidoResponseDTO> criados = new ArrayList<>(pedidos.size());
+        for (Long userId : userIds) {
+            Pedido pedido = pedidos.get(userId);
+            if (pedido != null) {
+                PedidoResponseDTO pedidoDTO = convertToDto(pedido);
+                criados.add(pedidoDTO);
+                resultados.add(new ResultadoFinalizacao(pedidoDTO, null));
+            } else {
+                resultados.add(new ResultadoFinalizacao(null, erros.get(userId)));
+            }
+        }
+        cozinhaService.registrar(criados);
+        return resultados;
+    }
+
+    // Grava os pedidos e depois todos os itens, cada um em um lote JDBC, preenchendo os IDs gerados
+    private void inserirEmLote(List<Pedido> pedidos) {
+        GeneratedKeyHolder chavesPedidos = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(conexao -> conexao.prepareStatement(INSERIR_PEDIDO_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Pedido pedido = pedidos.get(i);
+                        ps.setLong(1, pedido.getUsuario().getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(pedido.getDataPedido()));
+                        ps.setString(3, pedido.getStatus().name());
+                        ps.setLong(4, pedido.getValorTotal().centavos());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return pedidos.size();
+                    }
+                }, chavesPedidos);
+        List<Long> idsPedidos = idsGerados(chavesPedidos, pedidos.size());
+        List<ItemPedido> itens = new ArrayList<>();
+        for (int i = 0; i < pedidos.size(); i++) {
+            pedidos.get(i).setId(idsPedidos.get(i));
+            itens.addAll(pedidos.get(i).getItens());
+        }
+
+        GeneratedKeyHolder chavesItens = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(conexao -> conexao.prepareStatement(INSERIR_ITEM_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ItemPedido item = itens.get(i);
+                        ps.setLong(1, item.getPedido().getId());
+                        ps.setLong(2, item.getProduto().getId());
+                        ps.setInt(3, item.getQuantidade());
+                        ps.setLong(4, item.getPrecoUnitario().centavos());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return itens.size();
+                    }
+                }, chavesItens);
+        List<Long> idsItens = idsGerados(chavesItens, itens.size());
+        for (int i = 0; i < itens.size(); i++) {
+            itens.get(i).setId(idsItens.get(i));
         }
+    }
 
+    private static List<Long> idsGerados(GeneratedKeyHolder chaves, int esperados) {
+        List<Long> ids = new ArrayList<>(esperados);
+        for (Map<String, Object> chave : chaves.getKeyList()) {
+            ids.add(((Number) chave.values().iterator().next()).longValue());
+        }
+        if (ids.size() != esperados) {
+            throw new IllegalStateException("O banco retornou " + ids.size() + " IDs gerados para " + esperados + " linhas");
+        }
+        return ids;
+    }
+
+    /**
+     * Pedido rápido (quiosque, balcão): os itens vêm na requisição e viram o pedido direto, sem gravar nada no
+     * carrinho. Todos os produtos são conferidos em uma consulta (existência, disponibilidade e, se informado,
+     * o preço exibido ao cliente) e o pedido é gravado com seus itens em uma única transação.
+     */
+    @Transactional
+    public PedidoResponseDTO criarPedidoRapido(Long userId, PedidoRequestDTO pedidoRequest) {
+        Map<Long, ItemPedidoRequestDTO> itens = validarPedidoRapido(pedidoRequest);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + userId));
+        Map<Long, Produto> produtos = produtoRepository.findAllById(itens.keySet()).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+
+        List<LinhaCarrinho> linhas = new ArrayList<>(itens.size());
+        for (ItemPedidoRequestDTO item : itens.values()) {
+            Produto produto = produtos.get(item.getProdutoId());
+            if (produto == null) {
+                throw new RuntimeException("Produto não encontrado com ID: " + item.getProdutoId());
+            }
+            if (!Boolean.TRUE.equals(produto.getDisponibilidade())) {
+                throw new RuntimeException("Produto não disponível no momento: " + produto.getNome());
+            }
+            if (item.getPrecoUnitario() != null && !item.getPrecoUnitario().equals(produto.getPreco())) {
+                throw new RuntimeException("O preço de " + produto.getNome() + " mudou para " + produto.getPreco()
+                        + ". Confira o pedido e envie novamente.");
+            }
+            linhas.add(new LinhaCarrinho(null, produto.getId(), item.getQuantidade(), produto.getPreco()));
+        }
+
+        PedidoResponseDTO pedidoDTO = convertToDto(salvarPedido(user, linhas, produtos));
+        cozinhaService.registrar(pedidoDTO);
+        return pedidoDTO;
+    }
+
+    // Itens do pedido rápido por produto, na ordem recebida; o mesmo produto repetido soma as quantidades
+    private Map<Long, ItemPedidoRequestDTO> validarPedidoRapido(PedidoRequestDTO pedidoRequest) {
+        List<ItemPedidoRequestDTO> itens = pedidoRequest == null ? null : pedidoRequest.getItens();
+        if (itens == null || itens.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um item.");
+        }
+        if (itens.size() > maximoItensPedidoRapido) {
+            throw new IllegalArgumentException("O pedido aceita no máximo " + maximoItensPedidoRapido + " itens.");
+        }
+        Map<Long, ItemPedidoRequestDTO> porProduto = new LinkedHashMap<>();
+        for (int i = 0; i < itens.size(); i++) {
+            ItemPedidoRequestDTO item = itens.get(i);
+            if (item == null || item.getProdutoId() == null) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": informe o produtoId.");
+            }
+            if (item.getQuantidade() == null || item.getQuantidade() <= 0) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": a quantidade deve ser maior que zero.");
+            }
+            porProduto.merge(item.getProdutoId(), item, (anterior, novo) -> {
+                ItemPedidoRequestDTO somado = new ItemPedidoRequestDTO();
+                somado.setProdutoId(anterior.getProdutoId());
+                somado.setQuantidade(Math.addExact(anterior.getQuantidade(), novo.getQuantidade()));
+                somado.setPrecoUnitario(anterior.getPrecoUnitario() != null ? anterior.getPrecoUnitario() : novo.getPrecoUnitario());
+                return somado;
+            });
+        }
+        return porProduto;
+    }
+
+    // Monta o pedido PENDENTE com os itens e o total e grava tudo (itens em cascata)
+    private Pedido salvarPedido(User user, List<LinhaCarrinho> linhas, Map<Long, Produto> produtos) {
+        return pedidoRepository.save(montarPedido(user, linhas, produtos)); // Salva o pedido e os itens em cascata
+    }
+
+    private Pedido montarPedido(User user, List<LinhaCarrinho> linhas, Map<Long, Produto> produtos) {
         Pedido pedido = new Pedido();
         pedido.setUsuario(user);
         pedido.setDataPedido(LocalDateTime.now());
         // --- MUDANÇA AQUI: Status inicial PENDENTE ---
         pedido.setStatus(StatusPedido.PENDENTE);
 
-        BigDecimal valorTotal = BigDecimal.ZERO;
+        long valorTotal = 0;
 
-        for (ItemCarrinho itemCarrinho : carrinho.getItens()) {
+        for (LinhaCarrinho linha : linhas) {
+            Produto produto = produtos.get(linha.produtoId());
+            if (produto == null) {
+                throw new RuntimeException("Produto não encontrado com ID: " + linha.produtoId());
+            }
             ItemPedido itemPedido = new ItemPedido();
             itemPedido.setPedido(pedido); // Associa ao pedido atual
-            itemPedido.setProduto(itemCarrinho.getProduto());
-            itemPedido.setQuantidade(itemCarrinho.getQuantidade());
-            itemPedido.setPrecoUnitario(itemCarrinho.getPrecoUnitario());
+            itemPedido.setProduto(produto);
+            itemPedido.setQuantidade(linha.quantidade());
+            itemPedido.setPrecoUnitario(linha.precoUnitario());
 
-            valorTotal = valorTotal.add(itemPedido.getPrecoUnitario().multiply(BigDecimal.valueOf(itemPedido.getQuantidade())));
+            valorTotal = Math.addExact(valorTotal, itemPedido.getPrecoUnitario().vezes(itemPedido.getQuantidade()).centavos());
 
             pedido.getItens().add(itemPedido); // Adiciona o item ao pedido
         }
 
-        pedido.setValorTotal(valorTotal);
-
-        Pedido savedPedido = pedidoRepository.save(pedido); // Salva o pedido e os itens em cascata
-
-        // Após finalizar o pedido, limpa o carrinho
-        carrinho.getItens().clear();
-        carrinhoRepository.save(carrinho); // Salva o carrinho vazio
-
-        return convertToDto(savedPedido);
+        pedido.setValorTotal(Dinheiro.deCentavos(valorTotal));
+        return pedido;
     }
 
     // --- NOVO MÉTODO: Atualizar Status do Pedido (para ADMIN) ---
@@ -94,7 +408,9 @@ public class PedidoService {
         // Ex: Não permitir mudar de CANCELADO para FINALIZADO.
         pedido.setStatus(newStatus);
         Pedido updatedPedido = pedidoRepository.save(pedido);
-        return convertToDto(updatedPedido);
+        PedidoResponseDTO pedidoDTO = convertToDto(updatedPedido);
+        cozinhaService.registrar(pedidoDTO); // Entra, muda ou sai da fila da cozinha após o commit
+        return pedidoDTO;
     }
 
     // Obter um pedido por ID (para admin ou cliente que queira ver detalhes)
@@ -110,11 +426,109 @@ public class PedidoService {
                 .collect(Collectors.toList());
     }
 
-    // Obter todos os pedidos (para a área administrativa)
-    public List<PedidoResponseDTO> getAllPedidos() {
-        return pedidoRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Listagem administrativa paginada por cursor (dataPedido, id), do mais recente para o mais antigo, com filtros
+     * opcionais de status, período (de inclusive, ate exclusive) e usuário. Uma consulta para a página, usando os
+     * índices idx_pedido_*, e uma para os itens de todos os pedidos dela.
+     * Lança IllegalArgumentException se o cursor for inválido.
+     */
+    public PaginaDTO<PedidoResponseDTO> listarPagina(StatusPedido status, LocalDateTime de, LocalDateTime ate,
+                                                     Long userId, String cursor, Integer tamanho) {
+        int limite = (tamanho == null || tamanho <= 0) ? 20 : Math.min(tamanho, tamanhoMaximoPagina);
+
+        StringBuilder sql = new StringBuilder(SELECIONAR_PEDIDOS_SQL).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            args.add(status.name());
+        }
+        if (userId != null) {
+            sql.append(" AND p.user_id = ?");
+            args.add(userId);
+        }
+        if (de != null) {
+            sql.append(" AND p.data_pedido >= ?");
+            args.add(Timestamp.valueOf(de));
+        }
+        if (ate != null) {
+            sql.append(" AND p.data_pedido < ?");
+            args.add(Timestamp.valueOf(ate));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            String valor = decodificarCursor(cursor);
+            int separador = valor.lastIndexOf(':');
+            try {
+                Timestamp cursorData = Timestamp.valueOf(LocalDateTime.parse(valor.substring(0, separador)));
+                long cursorId = Long.parseLong(valor.substring(separador + 1));
+                sql.append(" AND (p.data_pedido < ? OR (p.data_pedido = ? AND p.id < ?))");
+                args.add(cursorData);
+                args.add(cursorData);
+                args.add(cursorId);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+        }
+        // Busca um pedido a mais para saber se existe próxima página
+        sql.append(" ORDER BY p.data_pedido DESC, p.id DESC LIMIT ?");
+        args.add(limite + 1);
+
+        List<PedidoResponseDTO> pedidos = jdbcTemplate.query(sql.toString(), this::mapearPedido, args.toArray());
+        boolean temMais = pedidos.size() > limite;
+        if (temMais) {
+            pedidos = pedidos.subList(0, limite);
+        }
+        preencherItens(pedidos);
+        String proximoCursor = null;
+        if (temMais) {
+            PedidoResponseDTO ultimo = pedidos.get(pedidos.size() - 1);
+            proximoCursor = codificarCursor(ultimo.getDataPedido() + ":" + ultimo.getId());
+        }
+        return new PaginaDTO<>(pedidos, proximoCursor, temMais);
+    }
+
+    private PedidoResponseDTO mapearPedido(ResultSet rs, int linha) throws SQLException {
+        PedidoResponseDTO pedidoDTO = new PedidoResponseDTO();
+        pedidoDTO.setId(rs.getLong("id"));
+        pedidoDTO.setUserId(rs.getLong("user_id"));
+        pedidoDTO.setUserName(rs.getString("name"));
+        pedidoDTO.setDataPedido(rs.getTimestamp("data_pedido").toLocalDateTime());
+        pedidoDTO.setStatus(StatusPedido.valueOf(rs.getString("status")));
+        pedidoDTO.setValorTotal(Dinheiro.deCentavos(rs.getLong("valor_total")));
+        pedidoDTO.setItens(new ArrayList<>());
+        return pedidoDTO;
+    }
+
+    // Itens de todos os pedidos da lista com uma consulta IN por bloco de pedidos, em vez de uma por pedido
+    private void preencherItens(List<PedidoResponseDTO> pedidos) {
+        for (int inicio = 0; inicio < pedidos.size(); inicio += PEDIDOS_POR_CONSULTA_ITENS) {
+            List<PedidoResponseDTO> bloco = pedidos.subList(inicio, Math.min(inicio + PEDIDOS_POR_CONSULTA_ITENS, pedidos.size()));
+            Map<Long, PedidoResponseDTO> porId = bloco.stream()
+                    .collect(Collectors.toMap(PedidoResponseDTO::getId, Function.identity()));
+            jdbcTemplate.query(SELECIONAR_ITENS_SQL.formatted(String.join(", ", Collections.nCopies(bloco.size(), "?"))), rs -> {
+                ItemPedidoResponseDTO itemPedidoDTO = new ItemPedidoResponseDTO();
+                itemPedidoDTO.setId(rs.getLong("id"));
+                itemPedidoDTO.setProdutoId(rs.getLong("produto_id"));
+                itemPedidoDTO.setNomeProduto(rs.getString("nome"));
+                itemPedidoDTO.setImagemProduto(rs.getString("imagem"));
+                itemPedidoDTO.setQuantidade(rs.getInt("quantidade"));
+                itemPedidoDTO.setPrecoUnitario(Dinheiro.deCentavos(rs.getLong("preco_unitario")));
+                itemPedidoDTO.setSubtotal(itemPedidoDTO.getPrecoUnitario().vezes(itemPedidoDTO.getQuantidade()));
+                porId.get(rs.getLong("pedido_id")).getItens().add(itemPedidoDTO);
+            }, porId.keySet().toArray());
+        }
+    }
+
+    private static String codificarCursor(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Base64 malformado também lança IllegalArgumentException
+    private static String decodificarCursor(String cursor) {
+        String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (valor.lastIndexOf(':') <= 0) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        return valor;
     }
 
     // Método auxiliar para converter Entidade para DTO (Pedido e seus itens)
@@ -136,7 +550,7 @@ public class PedidoService {
                     itemPedidoDTO.setImagemProduto(item.getProduto().getImagem());
                     itemPedidoDTO.setQuantidade(item.getQuantidade());
                     itemPedidoDTO.setPrecoUnitario(item.getPrecoUnitario());
-                    itemPedidoDTO.setSubtotal(item.getPrecoUnitario().multiply(BigDecimal.valueOf(item.getQuantidade())));
+                    itemPedidoDTO.setSubtotal(item.getPrecoUnitario().vezes(item.getQuantidade()));
                     return itemPedidoDTO;
                 })
                 .collect(Collectors.toList());
@@ -0,0 +1,274 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.ProdutoDTO;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória sobre nome e descrição dos produtos.
+ * Suporta termos exatos, prefixos (autocomplete) e trigramas (tolerância a erros de digitação),
+ * com remoção de acentos para o português. É atualizado incrementalmente pelo CardapioSnapshotService.
+ */
+@Component
+public class ProdutoSearchIndex {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NAO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "no", "na", "nos", "nas",
+            "com", "um", "uma", "para", "por", "ao");
+
+    private static final float PESO_NOME = 3.0f;
+    private static final float PESO_DESCRICAO = 1.0f;
+    private static final float FATOR_PREFIXO = 0.6f;
+    private static final float FATOR_TRIGRAMA = 0.4f;
+    private static final float SIMILARIDADE_MINIMA = 0.45f;
+    private static final int MAX_EXPANSOES_PREFIXO = 50;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // termo -> (produtoId -> peso do termo no produto), ordenado para buscas por prefixo
+    private final NavigableMap<String, Map<Long, Float>> termos = new TreeMap<>();
+    // trigrama -> termos que o contêm
+    private final Map<String, Set<String>> trigramas = new HashMap<>();
+    // produtoId -> termos indexados, para remoção incremental
+    private final Map<Long, Set<String>> termosPorProduto = new HashMap<>();
+
+    public void reconstruir(Collection<ProdutoDTO> produtos) {
+        lock.writeLock().lock();
+        try {
+            termos.clear();
+            trigramas.clear();
+            termosPorProduto.clear();
+            for (ProdutoDTO produto : produtos) {
+                adicionar(produto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexar(ProdutoDTO produto) {
+        lock.writeLock().lock();
+        try {
+            retirar(produto.getId());
+            adicionar(produto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remover(Long produtoId) {
+        lock.writeLock().lock();
+        try {
+            retirar(produtoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // IDs dos produtos que correspondem à consulta, do mais relevante para o menos relevante
+    public List<Long> buscar(String consulta, int limite) {
+        return buscar(tokenizar(consulta), limite);
+    }
+
+    // Autocomplete: como buscar, mas o último termo ainda está sendo digitado e é sempre tratado como prefixo,
+    // mesmo que seja uma stopword (ao digitar "a", "Água" já deve aparecer)
+    public List<Long> sugerir(String prefixo, int limite) {
+        return buscar(tokenizarPrefixo(prefixo), limite);
+    }
+
+    private List<Long> buscar(List<String> tokens, int limite) {
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Float> pontuacao = new HashMap<>();
+        Map<Long, Integer> tokensAtendidos = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                Map<Long, Float> melhorPorProduto = new HashMap<>();
+
+                Map<Long, Float> exatos = termos.get(token);
+                if (exatos != null) {
+                    acumularMaximo(melhorPorProduto, exatos, 1.0f);
+                }
+
+                // Prefixos: "sma" encontra "smash"
+                int expansoes = 0;
+                for (Map.Entry<String, Map<Long, Float>> entrada : termos.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                    if (++expansoes > MAX_EXPANSOES_PREFIXO) {
+                        break;
+                    }
+                    acumularMaximo(melhorPorProduto, entrada.getValue(), FATOR_PREFIXO);
+                }
+
+                // Trigramas: só quando não houve correspondência exata ou por prefixo ("hamburger" -> "hamburguer")
+                if (melhorPorProduto.isEmpty() && token.length() >= 3) {
+                    for (Map.Entry<String, Float> candidato : termosSemelhantes(token).entrySet()) {
+                        acumularMaximo(melhorPorProduto, termos.get(candidato.getKey()), FATOR_TRIGRAMA * candidato.getValue());
+                    }
+                }
+
+                for (Map.Entry<Long, Float> entrada : melhorPorProduto.entrySet()) {
+                    pontuacao.merge(entrada.getKey(), entrada.getValue(), Float::sum);
+                    tokensAtendidos.merge(entrada.getKey(), 1, Integer::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Produtos que atendem a mais termos da consulta vêm primeiro; depois, maior pontuação
+        List<Long> resultado = new ArrayList<>(pontuacao.keySet());
+        resultado.sort((a, b) -> {
+            int porTokens = Integer.compare(tokensAtendidos.get(b), tokensAtendidos.get(a));
+            if (porTokens != 0) {
+                return porTokens;
+            }
+            int porPontuacao = Float.compare(pontuacao.get(b), pontuacao.get(a));
+            return porPontuacao != 0 ? porPontuacao : Long.compare(a, b);
+        });
+        return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+
+    // Minúsculas, sem acentos e sem pontuação: "Água Mineral sem Gás" -> "agua mineral sem gas"
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return NAO_ALFANUMERICO.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalizar(texto).split(" ")) {
+            if (!token.isEmpty() && !STOPWORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Termos digitados no autocomplete: as stopwords só são descartadas quando já foram seguidas de um separador
+    static List<String> tokenizarPrefixo(String texto) {
+        List<String> tokens = tokenizar(texto);
+        if (texto == null || texto.isEmpty() || !Character.isLetterOrDigit(texto.charAt(texto.length() - 1))) {
+            return tokens; // Termina em espaço ou pontuação: o último termo está completo
+        }
+        String[] digitados = normalizar(texto).split(" ");
+        String ultimo = digitados[digitados.length - 1];
+        if (STOPWORDS.contains(ultimo)) {
+            tokens.add(ultimo);
+        }
+        return tokens;
+    }
+
+    private void adicionar(ProdutoDTO produto) {
+        Long id = produto.getId();
+        Map<String, Float> pesos = new HashMap<>();
+        for (String token : tokenizar(produto.getNome())) {
+            pesos.merge(token, PESO_NOME, Float::sum);
+        }
+        for (String token : tokenizar(produto.getDescricao())) {
+            pesos.merge(token, PESO_DESCRICAO, Float::sum);
+        }
+
+        for (Map.Entry<String, Float> entrada : pesos.entrySet()) {
+            String termo = entrada.getKey();
+            Map<Long, Float> postings = termos.get(termo);
+            if (postings == null) {
+                postings = new HashMap<>();
+                termos.put(termo, postings);
+                for (String trigrama : trigramasDe(termo)) {
+                    trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(termo);
+                }
+            }
+            postings.put(id, entrada.getValue());
+        }
+        termosPorProduto.put(id, pesos.keySet());
+    }
+
+    private void retirar(Long id) {
+        Set<String> indexados = termosPorProduto.remove(id);
+        if (indexados == null) {
+            return;
+        }
+        for (String termo : indexados) {
+            Map<Long, Float> postings = termos.get(termo);
+            if (postings == null) {
+                continue;
+            }
+            postings.remove(id);
+            if (postings.isEmpty()) {
+                termos.remove(termo);
+                for (String trigrama : trigramasDe(termo)) {
+                    Set<String> comTrigrama = trigramas.get(trigrama);
+                    if (comTrigrama != null) {
+                        comTrigrama.remove(termo);
+                        if (comTrigrama.isEmpty()) {
+                            trigramas.remove(trigrama);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Termos indexados com similaridade de trigramas (coeficiente de Dice) acima do mínimo
+    private Map<String, Float> termosSemelhantes(String token) {
+        Set<String> trigramasToken = trigramasDe(token);
+        Map<String, Integer> emComum = new HashMap<>();
+        for (String trigrama : trigramasToken) {
+            Set<String> comTrigrama = trigramas.get(trigrama);
+            if (comTrigrama != null) {
+                for (String termo : comTrigrama) {
+                    emComum.merge(termo, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Float> semelhantes = new HashMap<>();
+        for (Map.Entry<String, Integer> entrada : emComum.entrySet()) {
+            int trigramasTermo = entrada.getKey().length(); // " termo " tem um trigrama por letra
+            float similaridade = 2.0f * entrada.getValue() / (trigramasToken.size() + trigramasTermo);
+            if (similaridade >= SIMILARIDADE_MINIMA) {
+                semelhantes.put(entrada.getKey(), similaridade);
+            }
+        }
+        return semelhantes;
+    }
+
+    // Trigramas com marcadores de borda: "pao" -> " pa", "pao", "ao "
+    private static Set<String> trigramasDe(String termo) {
+        String comBordas = " " + termo + " ";
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= comBordas.length(); i++) {
+            resultado.add(comBordas.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    private static void acumularMaximo(Map<Long, Float> destino, Map<Long, Float> postings, float fator) {
+        for (Map.Entry<Long, Float> entrada : postings.entrySet()) {
+            destino.merge(entrada.getKey(), entrada.getValue() * fator, Math::max);
+        }
+    }
+}
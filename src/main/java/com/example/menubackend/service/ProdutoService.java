@@ -1,16 +1,29 @@
 package com.example.menubackend.service;
 
+import com.example.menubackend.dto.AlteracaoLoteResultadoDTO;
+import com.example.menubackend.dto.DisponibilidadeLoteDTO;
+import com.example.menubackend.dto.PaginaDTO;
+import com.example.menubackend.dto.PrecoLoteDTO;
 import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.dto.ProdutoResumo;
 import com.example.menubackend.model.Produto;
 import com.example.menubackend.model.Categoria; // Importar a enum Categoria
+import com.example.menubackend.model.Dinheiro;
 import com.example.menubackend.repository.ProdutoRepository;
 import org.springframework.beans.BeanUtils; // Para copiar propriedades
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class ProdutoService {
@@ -18,61 +31,142 @@ public class ProdutoService {
     @Autowired
     private ProdutoRepository produtoRepository;
 
+    @Autowired
+    private CardapioSnapshotService cardapioSnapshotService;
+
+    @Autowired
+    private ProdutoSearchIndex produtoSearchIndex;
+
+    @Autowired
+    private ImagemProdutoService imagemProdutoService;
+
+    @Value("${app.catalogo.pagina.tamanho-maximo:100}")
+    private int tamanhoMaximoPagina;
+
+    @Value("${app.catalogo.lote.maximo-ids:1000}")
+    private int maximoIdsLote;
+
     // Criar um novo produto
     public ProdutoDTO createProduto(ProdutoDTO produtoDTO) {
         Produto produto = new Produto();
         // Copia as propriedades do DTO para a entidade
         BeanUtils.copyProperties(produtoDTO, produto);
-        // Garante que o ID não seja setado na criação
+        // Garante que o ID não seja setado na criação; a imagem local só é definida por upload
         produto.setId(null);
+        produto.setImagemVersao(null);
         // O status (disponibilidade) pode ser definido como ativo por padrão na criação, se desejar
         if (produto.getDisponibilidade() == null) {
             produto.setDisponibilidade(true);
         }
 
         Produto savedProduto = produtoRepository.save(produto);
+        cardapioSnapshotService.produtoAlterado(savedProduto.getId());
         // Copia as propriedades da entidade salva de volta para um novo DTO para retorno
         ProdutoDTO responseDTO = new ProdutoDTO();
         BeanUtils.copyProperties(savedProduto, responseDTO);
         return responseDTO;
     }
 
-    // Listar todos os produtos (para Admin)
+    // Listar todos os produtos (para Admin) - servido pelo snapshot em memória
     public List<ProdutoDTO> getAllProdutos() {
-        return produtoRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return copiar(cardapioSnapshotService.getSnapshot().getProdutos());
     }
 
-    // Listar produtos ativos (para Cliente)
+    // Listar produtos ativos (para Cliente) - servido pelo snapshot em memória
     public List<ProdutoDTO> getActiveProdutos() {
-        return produtoRepository.findByDisponibilidadeTrue().stream() // Assumindo que você adicione este método no ProdutoRepository
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return copiar(cardapioSnapshotService.getSnapshot().getAtivos());
+    }
+
+    // Listagem paginada por cursor (categoria, id), com filtros opcionais de categoria e disponibilidade
+    public PaginaDTO<ProdutoResumo> listarPagina(Categoria categoria, Boolean disponivel, String cursor, Integer tamanho) {
+        int limite = (tamanho == null || tamanho <= 0) ? 20 : Math.min(tamanho, tamanhoMaximoPagina);
+
+        String cursorCategoria = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodificarCursor(cursor);
+            cursorCategoria = Categoria.valueOf(partes[0]).name();
+            cursorId = Long.parseLong(partes[1]);
+        }
+
+        // Busca um item a mais para saber se existe próxima página
+        List<ProdutoResumo> itens = produtoRepository.findPaginaResumo(
+                categoria != null ? categoria.name() : null, disponivel, cursorCategoria, cursorId, limite + 1);
+
+        boolean temMais = itens.size() > limite;
+        if (temMais) {
+            itens = itens.subList(0, limite);
+        }
+        String proximoCursor = null;
+        if (temMais) {
+            ProdutoResumo ultimo = itens.get(itens.size() - 1);
+            proximoCursor = codificarCursor(ultimo.getCategoria().name() + ":" + ultimo.getId());
+        }
+        return new PaginaDTO<>(itens, proximoCursor, temMais);
+    }
+
+    // Busca textual em nome e descrição, usando o índice em memória (apenas produtos disponíveis)
+    public List<ProdutoDTO> buscarProdutos(String consulta, int limite) {
+        // Pede mais IDs que o limite porque produtos indisponíveis são descartados
+        return disponiveis(produtoSearchIndex.buscar(consulta, limite * 2), limite).stream()
+                .map(ProdutoService::copiar)
+                .toList();
+    }
+
+    // Sugestões de nomes para autocomplete; o último termo digitado é sempre tratado como prefixo
+    public List<String> sugerirNomes(String prefixo, int limite) {
+        return disponiveis(produtoSearchIndex.sugerir(prefixo, limite * 2), limite).stream()
+                .map(ProdutoDTO::getNome)
+                .distinct()
+                .toList();
+    }
+
+    private List<ProdutoDTO> disponiveis(List<Long> ids, int limite) {
+        CardapioSnapshot snapshot = cardapioSnapshotService.getSnapshot();
+        List<ProdutoDTO> resultado = new ArrayList<>();
+        for (Long id : ids) {
+            ProdutoDTO produto = snapshot.getProduto(id);
+            if (produto != null && Boolean.TRUE.equals(produto.getDisponibilidade())) {
+                resultado.add(produto);
+                if (resultado.size() == limite) {
+                    break;
+                }
+            }
+        }
+        return resultado;
     }
 
     // Buscar produto por ID
     public Optional<ProdutoDTO> getProdutoById(Long id) {
-        return produtoRepository.findById(id)
-                .map(this::convertToDto);
+        return Optional.ofNullable(cardapioSnapshotService.getSnapshot().getProduto(id)).map(ProdutoService::copiar);
     }
 
     // Atualizar um produto existente
     public ProdutoDTO updateProduto(Long id, ProdutoDTO produtoDTO) {
         return produtoRepository.findById(id).map(existingProduto -> {
-            // Copia as propriedades do DTO para a entidade existente, ignorando o ID
-            BeanUtils.copyProperties(produtoDTO, existingProduto, "id");
+            // Copia as propriedades do DTO para a entidade existente, ignorando o ID e a versão da imagem local
+            BeanUtils.copyProperties(produtoDTO, existingProduto, "id", "imagemVersao");
             Produto updatedProduto = produtoRepository.save(existingProduto);
+            cardapioSnapshotService.produtoAlterado(id);
             return convertToDto(updatedProduto);
         }).orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + id));
     }
 
-    // Deletar um produto
+    // Deletar um produto; o cardápio e as imagens locais só são atualizados depois do commit,
+    // para que uma exclusão desfeita não deixe o produto sem as imagens publicadas
+    @Transactional
     public void deleteProduto(Long id) {
         if (!produtoRepository.existsById(id)) {
             throw new RuntimeException("Produto não encontrado com ID: " + id);
         }
         produtoRepository.deleteById(id);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cardapioSnapshotService.produtoAlterado(id);
+                imagemProdutoService.removerImagens(id);
+            }
+        });
     }
 
     // Ativar ou desativar um produto
@@ -80,14 +174,104 @@ public class ProdutoService {
         return produtoRepository.findById(id).map(produto -> {
             produto.setDisponibilidade(disponibilidade);
             Produto updatedProduto = produtoRepository.save(produto);
+            cardapioSnapshotService.produtoAlterado(id);
             return convertToDto(updatedProduto);
         }).orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + id));
     }
 
+    // Ativa ou desativa vários produtos (por IDs ou categoria inteira) com um único UPDATE
+    public AlteracaoLoteResultadoDTO alterarDisponibilidadeEmLote(DisponibilidadeLoteDTO alteracao) {
+        validarSelecaoLote(alteracao.getIds(), alteracao.getCategoria());
+        if (alteracao.getDisponibilidade() == null) {
+            throw new IllegalArgumentException("Informe a disponibilidade.");
+        }
+        boolean disponivel = alteracao.getDisponibilidade();
+        int alterados = alteracao.getCategoria() != null
+                ? produtoRepository.atualizarDisponibilidadePorCategoria(alteracao.getCategoria(), disponivel)
+                : produtoRepository.atualizarDisponibilidadePorIds(alteracao.getIds(), disponivel);
+        return concluirLote(alterados);
+    }
+
+    // Define um preço absoluto ou aplica um reajuste percentual a vários produtos com um único UPDATE
+    public AlteracaoLoteResultadoDTO alterarPrecoEmLote(PrecoLoteDTO alteracao) {
+        validarSelecaoLote(alteracao.getIds(), alteracao.getCategoria());
+        Dinheiro preco = alteracao.getPreco();
+        BigDecimal percentual = alteracao.getPercentual();
+        if ((preco == null) == (percentual == null)) {
+            throw new IllegalArgumentException("Informe o preço ou o percentual de reajuste (apenas um deles).");
+        }
+
+        int alterados;
+        if (preco != null) {
+            if (preco.centavos() < 0) {
+                throw new IllegalArgumentException("Preço inválido: " + preco);
+            }
+            alterados = alteracao.getCategoria() != null
+                    ? produtoRepository.atualizarPrecoPorCategoria(alteracao.getCategoria(), preco)
+                    : produtoRepository.atualizarPrecoPorIds(alteracao.getIds(), preco);
+        } else {
+            if (percentual.compareTo(BigDecimal.valueOf(-100)) <= 0) {
+                throw new IllegalArgumentException("Percentual deve ser maior que -100.");
+            }
+            BigDecimal fator = BigDecimal.ONE.add(percentual.movePointLeft(2));
+            alterados = alteracao.getCategoria() != null
+                    ? produtoRepository.reajustarPrecoPorCategoria(alteracao.getCategoria().name(), fator)
+                    : produtoRepository.reajustarPrecoPorIds(alteracao.getIds(), fator);
+        }
+        return concluirLote(alterados);
+    }
+
+    private void validarSelecaoLote(List<Long> ids, Categoria categoria) {
+        boolean temIds = ids != null && !ids.isEmpty();
+        if (temIds == (categoria != null)) {
+            throw new IllegalArgumentException("Informe os IDs dos produtos ou a categoria (apenas um deles).");
+        }
+        if (temIds && ids.size() > maximoIdsLote) {
+            throw new IllegalArgumentException("Máximo de " + maximoIdsLote + " IDs por operação.");
+        }
+    }
+
+    // Uma única recarga do snapshot por operação: a versão do cardápio avança uma vez só
+    private AlteracaoLoteResultadoDTO concluirLote(int alterados) {
+        CardapioSnapshot snapshot = alterados > 0
+                ? cardapioSnapshotService.recarregar()
+                : cardapioSnapshotService.getSnapshot();
+        return new AlteracaoLoteResultadoDTO(alterados, snapshot.getVersao());
+    }
+
+    private String codificarCursor(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodificarCursor(String cursor) {
+        String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        if (partes.length != 2) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        return partes;
+    }
+
     // Método auxiliar para converter Entidade para DTO
     private ProdutoDTO convertToDto(Produto produto) {
         ProdutoDTO produtoDTO = new ProdutoDTO();
         BeanUtils.copyProperties(produto, produtoDTO);
+        ImagemProdutoService.preencherUrls(produtoDTO, produto.getImagemVersao());
         return produtoDTO;
     }
-}
\ No newline at end of file
+
+    // Os DTOs do snapshot são compartilhados por todas as requisições: quem chama recebe cópias,
+    // para que alterar o objeto retornado não mude o cardápio servido aos demais
+    private static ProdutoDTO copiar(ProdutoDTO produto) {
+        ProdutoDTO copia = new ProdutoDTO();
+        BeanUtils.copyProperties(produto, copia);
+        return copia;
+    }
+
+    private static List<ProdutoDTO> copiar(List<ProdutoDTO> produtos) {
+        List<ProdutoDTO> copias = new ArrayList<>(produtos.size());
+        for (ProdutoDTO produto : produtos) {
+            copias.add(copiar(produto));
+        }
+        return copias;
+    }
+}
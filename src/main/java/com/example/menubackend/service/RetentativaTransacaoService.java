@@ -0,0 +1,85 @@
+package com.example.menubackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Executa uma operação em transação própria e a repete, um número limitado de vezes, quando ela perde uma
+ * disputa com outra requisição: versão desatualizada (@Version), deadlock ou violação de chave única
+ * (ex.: dois toques simultâneos criando o mesmo carrinho ou a mesma linha de item).
+ * As demais violações de integridade (chave estrangeira, NOT NULL, tamanho) são erros da requisição ou dos
+ * dados, não disputas: repetir não muda o resultado, então elas são propagadas na primeira tentativa.
+ * Cada tentativa relê o estado do banco; o rollback limpa o EntityManager da requisição (open-in-view).
+ */
+@Service
+public class RetentativaTransacaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentativaTransacaoService.class);
+
+    private static final int ERRO_CHAVE_DUPLICADA = 1062; // ER_DUP_ENTRY
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maximoTentativas;
+
+    public RetentativaTransacaoService(PlatformTransactionManager transactionManager,
+                                       @Value("${app.concorrencia.maximo-tentativas:5}") int maximoTentativas) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maximoTentativas = Math.max(1, maximoTentativas);
+    }
+
+    public <T> T executar(Supplier<T> operacao) {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return transactionTemplate.execute(status -> operacao.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (!isConflito(e)) {
+                    throw e;
+                }
+                if (tentativa >= maximoTentativas) {
+                    throw new IllegalStateException("Operação em conflito com outra requisição simultânea. Tente novamente.", e);
+                }
+                logger.debug("Conflito de concorrência na tentativa {}: {}", tentativa, e.getMessage());
+                aguardar(tentativa);
+            }
+        }
+    }
+
+    // Disputa com outra requisição, que vale repetir: conflito de concorrência ou chave única duplicada
+    public static boolean isConflito(RuntimeException e) {
+        if (e instanceof ConcurrencyFailureException || e instanceof DuplicateKeyException) {
+            return true;
+        }
+        if (!(e instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        // Pelo Hibernate a chave duplicada pode chegar como DataIntegrityViolationException genérica;
+        // o SQLState 23000 é comum a todas as violações, então vale o código do MySQL/MariaDB
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql && sql.getErrorCode() == ERRO_CHAVE_DUPLICADA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Espera curta, aleatória e crescente, para as requisições em disputa não colidirem de novo no mesmo instante
+    private static void aguardar(int tentativa) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 15) << Math.min(tentativa - 1, 4));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operação interrompida", e);
+        }
+    }
+}
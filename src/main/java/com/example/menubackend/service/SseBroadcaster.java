@@ -0,0 +1,217 @@
+package com.example.menubackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Canal de Server-Sent Events com muitos inscritos ociosos.
+ * As conexões ficam em modo assíncrono no servlet (nenhuma thread presa por inscrito). Cada evento é serializado
+ * uma única vez; a thread própria do canal apenas o coloca na fila de cada inscrito, na ordem de publicação, e um
+ * pequeno grupo de threads de escrita esvazia as filas. Um cliente lento ou travado só atrasa a própria fila:
+ * quando ela passa do limite, o inscrito é descartado (o EventSource reconecta e recebe o estado atual).
+ */
+public class SseBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseBroadcaster.class);
+
+    private final String nome;
+    private final ObjectMapper objectMapper;
+    private final int maximoConexoes;
+    private final long timeoutMs;
+    private final int maximoPendentes;
+
+    private final Map<SseEmitter, Inscrito> inscritos = new ConcurrentHashMap<>();
+    private final AtomicInteger conexoes = new AtomicInteger(); // Inclui inscrições ainda na fila do canal
+    private final ExecutorService envio; // Ordena inscrições e publicações; nunca escreve na rede
+    private final ExecutorService escrita;
+
+    public SseBroadcaster(String nome, ObjectMapper objectMapper, int maximoConexoes, long timeoutMs,
+                          int maximoPendentes, int threadsEscrita) {
+        this.nome = nome;
+        this.objectMapper = objectMapper;
+        this.maximoConexoes = maximoConexoes;
+        this.timeoutMs = timeoutMs;
+        this.maximoPendentes = Math.max(1, maximoPendentes);
+        this.envio = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "sse-" + nome);
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger numero = new AtomicInteger();
+        this.escrita = Executors.newFixedThreadPool(Math.max(1, threadsEscrita), tarefa -> {
+            Thread thread = new Thread(tarefa, "sse-" + nome + "-escrita-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra um novo inscrito. O callback inicial (ex.: estado atual) roda na thread do canal antes que o
+     * inscrito passe a receber os eventos publicados, então nenhum evento chega fora de ordem.
+     * Lança IllegalStateException se o limite de conexões foi atingido.
+     */
+    public SseEmitter inscrever(Consumer<SseEmitter> inicial) {
+        if (conexoes.incrementAndGet() > maximoConexoes) {
+            conexoes.decrementAndGet();
+            throw new IllegalStateException("Limite de conexões do canal " + nome + " atingido");
+        }
+        SseEmitter emissor = new SseEmitter(timeoutMs);
+        Inscrito inscrito = new Inscrito(emissor);
+        emissor.onCompletion(() -> liberar(inscrito));
+        emissor.onError(erro -> liberar(inscrito));
+        emissor.onTimeout(emissor::complete);
+
+        envio.execute(() -> {
+            inscritos.put(emissor, inscrito);
+            if (inscrito.liberado.get()) {
+                inscritos.remove(emissor); // Cliente saiu antes de a inscrição ser processada
+                return;
+            }
+            if (inicial != null) {
+                inicial.accept(emissor);
+            }
+        });
+        return emissor;
+    }
+
+    // Serializa o evento uma vez e o coloca na fila de todos os inscritos
+    public void publicar(String evento, String id, Object dados) {
+        Set<DataWithMediaType> mensagem = montar(evento, id, dados);
+        envio.execute(() -> {
+            for (Inscrito inscrito : inscritos.values()) {
+                enfileirar(inscrito, mensagem);
+            }
+        });
+    }
+
+    // Envia um evento a um único inscrito; use dentro do callback inicial de inscrever
+    public void enviar(SseEmitter emissor, String evento, String id, Object dados) {
+        Inscrito inscrito = inscritos.get(emissor);
+        if (inscrito != null) {
+            enfileirar(inscrito, montar(evento, id, dados));
+        }
+    }
+
+    // Comentário vazio periódico: mantém proxies e balanceadores sem fechar conexões ociosas e detecta clientes
+    // que caíram; em um cliente travado, os comentários acumulam na fila até ele ser descartado
+    public void manterConexoes() {
+        Set<DataWithMediaType> comentario = SseEmitter.event().comment("ping").build();
+        envio.execute(() -> {
+            for (Inscrito inscrito : inscritos.values()) {
+                enfileirar(inscrito, comentario);
+            }
+        });
+    }
+
+    public int getQuantidadeInscritos() {
+        return inscritos.size();
+    }
+
+    public void encerrar() {
+        envio.shutdownNow();
+        escrita.shutdownNow();
+        for (SseEmitter emissor : inscritos.keySet()) {
+            emissor.complete();
+        }
+    }
+
+    private Set<DataWithMediaType> montar(String evento, String id, Object dados) {
+        try {
+            String json = objectMapper.writeValueAsString(dados);
+            return SseEmitter.event().name(evento).id(id).data(json, MediaType.APPLICATION_JSON).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar evento " + evento, e);
+        }
+    }
+
+    // Roda na thread do canal: não escreve na rede nem encerra o emissor (ambos podem bloquear em um cliente travado)
+    private void enfileirar(Inscrito inscrito, Set<DataWithMediaType> mensagem) {
+        synchronized (inscrito) {
+            if (inscrito.descartado) {
+                return;
+            }
+            if (inscrito.fila.size() >= maximoPendentes) {
+                // Fila cheia: há uma escrita em andamento, que encerra o emissor quando terminar
+                logger.debug("Inscrito do canal {} descartado: {} eventos pendentes", nome, inscrito.fila.size());
+                inscrito.descartado = true;
+                inscrito.fila.clear();
+                inscritos.remove(inscrito.emissor);
+                return;
+            }
+            inscrito.fila.add(mensagem);
+            if (inscrito.escrevendo) {
+                return;
+            }
+            inscrito.escrevendo = true;
+        }
+        escrita.execute(() -> escrever(inscrito));
+    }
+
+    // Esvazia a fila de um inscrito; só uma escrita por inscrito de cada vez, para manter a ordem
+    private void escrever(Inscrito inscrito) {
+        while (true) {
+            Set<DataWithMediaType> mensagem;
+            synchronized (inscrito) {
+                mensagem = inscrito.descartado ? null : inscrito.fila.poll();
+                if (mensagem == null) {
+                    inscrito.escrevendo = false;
+                    break;
+                }
+            }
+            try {
+                inscrito.emissor.send(mensagem);
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado: o callback de erro/conclusão remove o inscrito
+                logger.debug("Inscrito do canal {} descartado: {}", nome, e.getMessage());
+                synchronized (inscrito) {
+                    inscrito.descartado = true;
+                    inscrito.fila.clear();
+                    inscrito.escrevendo = false;
+                }
+                liberar(inscrito);
+                inscrito.emissor.completeWithError(e);
+                return;
+            }
+        }
+        if (inscrito.descartado) {
+            liberar(inscrito);
+            inscrito.emissor.complete(); // Descartado por atraso: o cliente reconecta
+        }
+    }
+
+    private void liberar(Inscrito inscrito) {
+        if (inscrito.liberado.compareAndSet(false, true)) {
+            inscritos.remove(inscrito.emissor);
+            conexoes.decrementAndGet();
+        }
+    }
+
+    private static final class Inscrito {
+        final SseEmitter emissor;
+        final AtomicBoolean liberado = new AtomicBoolean();
+        // Protegidos pelo próprio inscrito
+        final ArrayDeque<Set<DataWithMediaType>> fila = new ArrayDeque<>();
+        boolean escrevendo;
+        boolean descartado;
+
+        Inscrito(SseEmitter emissor) {
+            this.emissor = emissor;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.CarrinhoDeltaDTO;
+import com.example.menubackend.dto.CarrinhoResponseDTO;
+import com.example.menubackend.dto.ItemCarrinhoResponseDTO;
+import com.example.menubackend.model.Dinheiro;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AlteracaoCarrinhoTest {
+
+    @Test
+    void deltaTrazSoOQueMudou() {
+        CarrinhoResponseDTO carrinho = carrinho(item(1L, 2), item(2L, 1), item(3L, 5));
+        // Antes: item 1 com 1 unidade, item 2 igual, item 3 ainda não existia e item 4 foi removido
+        AlteracaoCarrinho alteracao = new AlteracaoCarrinho(carrinho, 6L, Map.of(1L, 1, 2L, 1, 4L, 3));
+
+        CarrinhoDeltaDTO delta = (CarrinhoDeltaDTO) alteracao.resposta(6L);
+
+        assertThat(delta.getItensAlterados())
+                .extracting(ItemCarrinhoResponseDTO::getId, ItemCarrinhoResponseDTO::getQuantidade, ItemCarrinhoResponseDTO::getNomeProduto)
+                .containsExactly(tuple(1L, 2, null), tuple(3L, 5, "Produto 3"));
+        assertThat(delta.getItensRemovidos()).containsExactly(4L);
+        assertThat(delta.getVersaoAnterior()).isEqualTo(6L);
+        assertThat(delta.getVersao()).isEqualTo(7L);
+    }
+
+    @Test
+    void deltaNaoAlteraOCarrinhoCompleto() {
+        CarrinhoResponseDTO carrinho = carrinho(item(1L, 2));
+        AlteracaoCarrinho alteracao = new AlteracaoCarrinho(carrinho, 6L, Map.of(1L, 1));
+
+        alteracao.resposta(6L);
+
+        assertThat(alteracao.resposta(5L)).isSameAs(carrinho);
+        assertThat(carrinho.getItens())
+                .extracting(ItemCarrinhoResponseDTO::getNomeProduto, ItemCarrinhoResponseDTO::getImagemProduto)
+                .containsExactly(tuple("Produto 1", "produto-1.png"));
+    }
+
+    @Test
+    void deltaProntoSoServeParaAVersaoDoCliente() {
+        CarrinhoDeltaDTO delta = new CarrinhoDeltaDTO();
+        delta.setVersaoAnterior(6L);
+        delta.setVersao(7L);
+        AlteracaoCarrinho alteracao = AlteracaoCarrinho.soDelta(delta);
+
+        assertThat(alteracao.resposta(6L)).isSameAs(delta);
+        assertThatThrownBy(() -> alteracao.resposta(5L)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static CarrinhoResponseDTO carrinho(ItemCarrinhoResponseDTO... itens) {
+        CarrinhoResponseDTO carrinho = new CarrinhoResponseDTO();
+        carrinho.setItens(List.of(itens));
+        carrinho.setVersao(7L);
+        carrinho.setValorTotal(Dinheiro.deCentavos(1000));
+        return carrinho;
+    }
+
+    private static ItemCarrinhoResponseDTO item(Long id, int quantidade) {
+        ItemCarrinhoResponseDTO item = new ItemCarrinhoResponseDTO();
+        item.setId(id);
+        item.setProdutoId(id);
+        item.setNomeProduto("Produto " + id);
+        item.setImagemProduto("produto-" + id + ".png");
+        item.setQuantidade(quantidade);
+        item.setPrecoUnitario(Dinheiro.deCentavos(100));
+        item.setSubtotal(Dinheiro.deCentavos(100L * quantidade));
+        return item;
+    }
+}
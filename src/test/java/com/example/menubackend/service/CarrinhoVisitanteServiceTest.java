@@ -0,0 +1,160 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.OperacaoCarrinhoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.example.menubackend.service.CarrinhoVisitanteService.CarrinhoVisitante;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CarrinhoVisitanteServiceTest {
+
+    private static final String SEGREDO = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OUTRO_SEGREDO = Base64.getEncoder().encodeToString("outra chave de 32 bytes.........".getBytes());
+
+    private CardapioSnapshotService cardapioSnapshotService;
+    private CarrinhoVisitanteService service;
+
+    @BeforeEach
+    void setUp() {
+        cardapioSnapshotService = mock(CardapioSnapshotService.class);
+        cardapio(produto(1L, 1000, true), produto(2L, 2550, true), produto(3L, 500, true), produto(4L, 700, true),
+                produto(9L, 100, false));
+        service = new CarrinhoVisitanteService(cardapioSnapshotService, SEGREDO, 7, 3);
+    }
+
+    @Test
+    void carrinhoViajaNoToken() {
+        String token = service.adicionar(null, 1L, 2).token();
+        token = service.adicionar(token, 2L, 1).token();
+
+        CarrinhoVisitante carrinho = service.obter(token);
+
+        assertThat(carrinho.carrinho().getItens())
+                .extracting("produtoId", "quantidade")
+                .containsExactly(tuple(1L, 2), tuple(2L, 1));
+        assertThat(carrinho.carrinho().getValorTotal()).isEqualTo(Dinheiro.deCentavos(4550));
+    }
+
+    @Test
+    void semTokenOCarrinhoEstaVazio() {
+        assertThat(service.obter(null).carrinho().getItens()).isEmpty();
+        assertThat(service.paraMesclar(" ").operacoes()).isEmpty();
+    }
+
+    @Test
+    void idDoCarrinhoSeMantemNasRenovacoes() {
+        String token = service.adicionar(null, 1L, 2).token();
+        String renovado = service.adicionar(token, 2L, 1).token();
+        String outro = service.adicionar(null, 1L, 2).token();
+
+        // O login usa o ID para não mesclar duas vezes o mesmo carrinho, em qualquer versão do token
+        assertThat(service.paraMesclar(renovado).id())
+                .isEqualTo(service.paraMesclar(token).id())
+                .isNotEqualTo(service.paraMesclar(outro).id())
+                .hasSize(12);
+    }
+
+    @Test
+    void recusaTokenAdulterado() {
+        String token = service.adicionar(null, 1L, 1).token();
+        String[] partes = token.split("\\.");
+
+        // Outro carrinho ou outro ID com a assinatura do primeiro
+        String[] outro = service.adicionar(null, 2L, 5).token().split("\\.");
+        assertInvalido(partes[0] + "." + partes[1] + "." + outro[2] + "." + partes[3]);
+        assertInvalido(partes[0] + "." + outro[1] + "." + partes[2] + "." + partes[3]);
+        // Validade estendida pelo cliente
+        String validade = Long.toString(Long.parseLong(partes[0], 36) + 86_400, 36);
+        assertInvalido(validade + "." + partes[1] + "." + partes[2] + "." + partes[3]);
+        // Assinatura alterada (no primeiro caractere: o último carrega bits de preenchimento), ausente ou inválida
+        String conteudo = partes[0] + "." + partes[1] + "." + partes[2];
+        char primeiro = partes[3].charAt(0);
+        assertInvalido(conteudo + "." + (primeiro == 'A' ? 'B' : 'A') + partes[3].substring(1));
+        assertInvalido(conteudo);
+        assertInvalido(conteudo + ".%%%");
+        // Token válido emitido com outra chave
+        CarrinhoVisitanteService outraChave = new CarrinhoVisitanteService(cardapioSnapshotService, OUTRO_SEGREDO, 7, 3);
+        assertInvalido(outraChave.adicionar(null, 1L, 1).token());
+    }
+
+    @Test
+    void recusaTokenExpirado() {
+        CarrinhoVisitanteService vencido = new CarrinhoVisitanteService(cardapioSnapshotService, SEGREDO, -1, 3);
+        String token = vencido.adicionar(null, 1L, 1).token();
+
+        assertInvalido(token);
+    }
+
+    @Test
+    void recusaTokenGrandeDemais() {
+        String token = service.adicionar(null, 1L, 1).token();
+
+        assertInvalido(token + "A".repeat(2048));
+    }
+
+    @Test
+    void limitaAQuantidadeDeItens() {
+        String token = service.adicionar(null, 1L, 1).token();
+        token = service.adicionar(token, 2L, 1).token();
+        String cheio = service.adicionar(token, 3L, 1).token();
+
+        assertThatThrownBy(() -> service.adicionar(cheio, 4L, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no máximo 3 itens");
+        // Mais unidades de um produto que já está no carrinho continuam aceitas
+        assertThat(service.adicionar(cheio, 1L, 4).carrinho().getItens()).hasSize(3);
+    }
+
+    @Test
+    void naoAdicionaProdutoIndisponivel() {
+        assertThatThrownBy(() -> service.adicionar(null, 9L, 1))
+                .hasMessageContaining("não disponível");
+    }
+
+    @Test
+    void mesclarIgnoraProdutosIndisponiveisOuRemovidos() {
+        String token = service.adicionar(null, 1L, 2).token();
+        token = service.adicionar(token, 2L, 1).token();
+        token = service.adicionar(token, 3L, 4).token();
+
+        // Depois de montado o carrinho, o produto 2 ficou indisponível e o 3 saiu do cardápio
+        cardapio(produto(1L, 1000, true), produto(2L, 2550, false), produto(4L, 700, true));
+
+        assertThat(service.paraMesclar(token).operacoes())
+                .extracting(OperacaoCarrinhoDTO::getTipo, OperacaoCarrinhoDTO::getProdutoId, OperacaoCarrinhoDTO::getQuantidade)
+                .containsExactly(tuple(OperacaoCarrinhoDTO.Tipo.ADICIONAR, 1L, 2));
+    }
+
+    private void assertInvalido(String token) {
+        assertThatThrownBy(() -> service.obter(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Carrinho de visitante inválido ou expirado.");
+    }
+
+    private void cardapio(ProdutoDTO... produtos) {
+        CardapioSnapshot snapshot = CardapioSnapshot.of(1L, List.of(produtos), new ObjectMapper());
+        when(cardapioSnapshotService.getSnapshot()).thenReturn(snapshot);
+    }
+
+    private static ProdutoDTO produto(Long id, long centavos, boolean disponivel) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setId(id);
+        dto.setNome("Produto " + id);
+        dto.setPreco(Dinheiro.deCentavos(centavos));
+        dto.setCategoria(Categoria.LANCHE);
+        dto.setDisponibilidade(disponivel);
+        return dto;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.ErroImportacaoDTO;
+import com.example.menubackend.dto.ImportacaoResultadoDTO;
+import com.example.menubackend.dto.ProdutoDTO;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.example.menubackend.model.Produto;
+import com.example.menubackend.repository.ProdutoRepository;
+import com.example.menubackend.service.CatalogoImportExportService.Formato;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class CatalogoImportExportTest {
+
+    @Autowired
+    private CatalogoImportExportService catalogoImportExportService;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CardapioSnapshotService cardapioSnapshotService;
+
+    @AfterTransaction
+    void recarregarCardapio() {
+        // A importação recarrega o snapshot dentro da transação do teste, que é desfeita ao final
+        cardapioSnapshotService.recarregar();
+    }
+
+    @Test
+    void csvExportadoComQuebrasDeLinhaEAspasVoltaIgualNaImportacao() throws Exception {
+        String nome = "X-Tudo, \"especial\"";
+        String descricao = "Pão, carne e queijo\nMolho da casa\r\nServido com \"fritas\"\rquente";
+        Produto produto = produtoRepository.saveAndFlush(new Produto(null, nome, descricao,
+                Dinheiro.deCentavos(4290), Categoria.LANCHE, true, null, null));
+
+        ByteArrayOutputStream exportado = new ByteArrayOutputStream();
+        catalogoImportExportService.exportar(exportado, Formato.CSV);
+
+        produto.setNome("Alterado");
+        produto.setDescricao("Alterado");
+        produtoRepository.saveAndFlush(produto);
+
+        ImportacaoResultadoDTO resultado = catalogoImportExportService.importar(
+                new ByteArrayInputStream(exportado.toByteArray()), Formato.CSV);
+
+        assertThat(resultado.getErros()).isEmpty();
+        assertThat(resultado.getLinhasLidas()).isEqualTo(produtoRepository.count());
+        assertThat(resultado.getImportados()).isEqualTo(resultado.getLinhasLidas());
+
+        // Lido direto do banco: a entidade em memória ainda tem os valores alterados
+        Map<String, Object> importado = jdbcTemplate.queryForMap(
+                "SELECT nome, descricao, preco FROM produto WHERE id = ?", produto.getId());
+        assertThat(importado.get("nome")).isEqualTo(nome);
+        assertThat(importado.get("descricao")).isEqualTo(descricao);
+        assertThat(((Number) importado.get("preco")).longValue()).isEqualTo(4290L);
+    }
+
+    @Test
+    void errosApontamALinhaDoArquivoOndeORegistroComeca() throws Exception {
+        String csv = "nome,descricao,preco,categoria\n"
+                + "Combo,\"Primeira linha\nsegunda linha\nterceira\",10.00,INEXISTENTE\n"
+                + "\n"
+                + "Suco,\"Aspas sem fechamento,5.00,BEBIDA\n";
+
+        ImportacaoResultadoDTO resultado = catalogoImportExportService.importar(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Formato.CSV);
+
+        assertThat(resultado.getLinhasLidas()).isEqualTo(2);
+        assertThat(resultado.getImportados()).isZero();
+        assertThat(resultado.getErros()).extracting(ErroImportacaoDTO::getLinha).containsExactly(2L, 6L);
+        assertThat(resultado.getErros().get(1).getMensagem()).contains("aspas não fechadas");
+    }
+
+    @Test
+    void registroGrandeDemaisViraErroEMantemOQueJaFoiLido() throws Exception {
+        String csv = "nome,descricao,preco,categoria\n"
+                + "Importado antes,ok,12.00,LANCHE\n"
+                + "Sem fim,\"" + "x".repeat(70_000) + "\n"
+                + "Nunca lido,ok,1.00,LANCHE\n";
+
+        ImportacaoResultadoDTO resultado = catalogoImportExportService.importar(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Formato.CSV);
+
+        assertThat(resultado.getImportados()).isEqualTo(1);
+        assertThat(resultado.getErros()).extracting(ErroImportacaoDTO::getLinha).containsExactly(3L);
+        assertThat(resultado.getErros().get(0).getMensagem()).contains("aspas não fechadas");
+        // O cardápio em memória foi recarregado com o que chegou a ser gravado
+        assertThat(cardapioSnapshotService.getSnapshot().getProdutos())
+                .extracting(ProdutoDTO::getNome)
+                .contains("Importado antes")
+                .doesNotContain("Nunca lido");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.model.Dinheiro;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ItensCompactosTest {
+
+    @Test
+    void decodificaOQueFoiCodificado() {
+        ItensCompactos itens = new ItensCompactos();
+        itens.adicionar(3L, Dinheiro.deCentavos(1290), 2);
+        itens.incluir(200L, 5L, 1, Dinheiro.deCentavos(0));
+        // Valores de vários bytes: 127/128 e 16383/16384 são as fronteiras de 1, 2 e 3 bytes
+        itens.adicionar(128L, Dinheiro.deCentavos(16_384), 127);
+        itens.adicionar(16_383L, Dinheiro.deCentavos(1_000_000_000_000L), 70_000);
+        itens.adicionar(Long.MAX_VALUE, Dinheiro.deCentavos(Long.MAX_VALUE), Integer.MAX_VALUE);
+
+        ItensCompactos lidos = ItensCompactos.decodificar(itens.codificar());
+
+        assertThat(lidos.itens())
+                .extracting(item -> item.id, item -> item.produtoId, item -> item.quantidade, item -> item.precoUnitario)
+                .containsExactly(
+                        tuple(1L, 3L, 2, Dinheiro.deCentavos(1290)),
+                        tuple(200L, 5L, 1, Dinheiro.deCentavos(0)),
+                        tuple(201L, 128L, 127, Dinheiro.deCentavos(16_384)),
+                        tuple(202L, 16_383L, 70_000, Dinheiro.deCentavos(1_000_000_000_000L)),
+                        tuple(203L, Long.MAX_VALUE, Integer.MAX_VALUE, Dinheiro.deCentavos(Long.MAX_VALUE)));
+        assertThat(lidos.codificar()).isEqualTo(itens.codificar());
+
+        // O próximo ID também é preservado: itens novos não reutilizam IDs já entregues ao cliente
+        lidos.adicionar(9L, Dinheiro.deCentavos(500), 1);
+        assertThat(lidos.quantidades()).containsEntry(204L, 1);
+    }
+
+    @Test
+    void usaSeteBitsPorByte() {
+        ItensCompactos itens = new ItensCompactos();
+        itens.adicionar(128L, Dinheiro.deCentavos(1), 1);
+
+        // Versão, próximo ID, quantidade de itens e o item (ID, produto 128 em dois bytes, quantidade, preço)
+        assertThat(itens.codificar()).containsExactly(1, 2, 1, 1, 0x80, 0x01, 1, 1);
+        assertThat(new ItensCompactos().codificar()).containsExactly(1, 1, 0);
+    }
+
+    @Test
+    void semDadosOCarrinhoEstaVazio() {
+        assertThat(ItensCompactos.decodificar(null).isVazio()).isTrue();
+        assertThat(ItensCompactos.decodificar(new byte[0]).isVazio()).isTrue();
+    }
+
+    @Test
+    void recusaVersaoDesconhecida() {
+        byte[] dados = new ItensCompactos().codificar();
+        dados[0] = 2;
+
+        assertThatThrownBy(() -> ItensCompactos.decodificar(dados))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Versão desconhecida");
+    }
+
+    @Test
+    void recusaDadosTruncados() {
+        ItensCompactos itens = new ItensCompactos();
+        itens.adicionar(3L, Dinheiro.deCentavos(1290), 2);
+        itens.adicionar(16_384L, Dinheiro.deCentavos(99_999), 300);
+        byte[] dados = itens.codificar();
+
+        for (int tamanho = 1; tamanho < dados.length; tamanho++) {
+            byte[] truncados = Arrays.copyOf(dados, tamanho);
+            assertThatThrownBy(() -> ItensCompactos.decodificar(truncados))
+                    .as("truncado em %d de %d bytes", tamanho, dados.length)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("truncados");
+        }
+    }
+
+    @Test
+    void recusaInteiroComBytesDeContinuacaoDemais() {
+        byte[] dados = new byte[12];
+        dados[0] = ItensCompactos.VERSAO;
+        Arrays.fill(dados, 1, dados.length, (byte) 0x80);
+
+        assertThatThrownBy(() -> ItensCompactos.decodificar(dados))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("corrompidos");
+    }
+
+    @Test
+    void incluirSomaOMesmoProdutoEMantemOId() {
+        ItensCompactos itens = new ItensCompactos();
+        itens.incluir(10L, 7L, 2, Dinheiro.deCentavos(800));
+        itens.incluir(11L, 7L, 3, Dinheiro.deCentavos(800));
+
+        assertThat(List.copyOf(ItensCompactos.decodificar(itens.codificar()).itens()))
+                .extracting(item -> item.id, item -> item.quantidade)
+                .containsExactly(tuple(10L, 5));
+    }
+}
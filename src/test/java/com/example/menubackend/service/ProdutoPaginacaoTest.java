@@ -0,0 +1,88 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.PaginaDTO;
+import com.example.menubackend.dto.ProdutoResumo;
+import com.example.menubackend.model.Categoria;
+import com.example.menubackend.model.Dinheiro;
+import com.example.menubackend.model.Produto;
+import com.example.menubackend.repository.ProdutoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ProdutoPaginacaoTest {
+
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void categoriaEhGravadaComoTexto() {
+        // Em uma coluna enum(...) o ORDER BY segue a posição dos valores na definição, e não o texto comparado
+        // pelo cursor (categoria > ?); a ordem da definição depende da versão do Hibernate que criou a tabela
+        String tipo = jdbcTemplate.queryForObject("SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'produto' AND COLUMN_NAME = 'categoria'", String.class);
+        assertThat(tipo).isEqualToIgnoringCase("varchar");
+    }
+
+    @Test
+    void percorreTodasAsCategoriasPeloCursor() {
+        // Categorias fora da ordem alfabética na declaração do enum (LANCHE vem antes de BEBIDA e APERITIVO)
+        for (Categoria categoria : Categoria.values()) {
+            produtoRepository.save(new Produto(null, "Teste " + categoria, null, Dinheiro.deCentavos(1000),
+                    categoria, true, null, null));
+            produtoRepository.save(new Produto(null, "Teste 2 " + categoria, null, Dinheiro.deCentavos(1000),
+                    categoria, false, null, null));
+        }
+        List<Long> esperados = produtoRepository.findAll().stream().map(Produto::getId).toList();
+
+        List<ProdutoResumo> lidos = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDTO<ProdutoResumo> pagina = produtoService.listarPagina(null, null, cursor, 3);
+            lidos.addAll(pagina.getItens());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+
+        assertThat(lidos).extracting(ProdutoResumo::getId).containsExactlyInAnyOrderElementsOf(esperados);
+        assertThat(lidos).isSortedAccordingTo(Comparator
+                .comparing((ProdutoResumo produto) -> produto.getCategoria().name())
+                .thenComparing(ProdutoResumo::getId));
+    }
+
+    @Test
+    void filtraPorDisponibilidadeAtravessandoCategorias() {
+        for (Categoria categoria : Categoria.values()) {
+            produtoRepository.save(new Produto(null, "Indisponível " + categoria, null, Dinheiro.deCentavos(500),
+                    categoria, false, null, null));
+        }
+        long indisponiveis = produtoRepository.findAll().stream()
+                .filter(produto -> Boolean.FALSE.equals(produto.getDisponibilidade()))
+                .count();
+
+        int lidos = 0;
+        String cursor = null;
+        do {
+            PaginaDTO<ProdutoResumo> pagina = produtoService.listarPagina(null, false, cursor, 1);
+            lidos += pagina.getItens().size();
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+
+        assertThat(lidos).isEqualTo(indisponiveis);
+    }
+}
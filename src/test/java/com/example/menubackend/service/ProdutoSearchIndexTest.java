@@ -0,0 +1,77 @@
+package com.example.menubackend.service;
+
+import com.example.menubackend.dto.ProdutoDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProdutoSearchIndexTest {
+
+    private ProdutoSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProdutoSearchIndex();
+        index.reconstruir(List.of(
+                produto(1L, "Smash Duplo Bacon", "Dois smash burgers, queijo prato e bacon crocante."),
+                produto(2L, "Água Mineral sem Gás", "Garrafa de 500ml de água mineral."),
+                produto(3L, "Vegano", "Hambúrguer de grão de bico e legumes."),
+                produto(4L, "Batata Frita com Cheddar e Bacon", "Porção de batatas fritas com cheddar.")));
+    }
+
+    @Test
+    void ignoraAcentosNaConsultaENoConteudo() {
+        assertThat(index.buscar("agua", 10)).containsExactly(2L);
+        assertThat(index.buscar("GRÃO", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void encontraPorPrefixoParaAutocomplete() {
+        assertThat(index.buscar("sma", 10)).containsExactly(1L);
+    }
+
+    @Test
+    void toleraErroDeDigitacaoPorTrigramas() {
+        // "hamburguer" é o mais próximo; "burgers" também é parecido, mas fica atrás
+        assertThat(index.buscar("hamburger", 10)).startsWith(3L);
+    }
+
+    @Test
+    void priorizaProdutosQueAtendemTodosOsTermosEOCampoNome() {
+        // Ambos têm "bacon" no nome, mas só a batata também tem "cheddar"
+        assertThat(index.buscar("bacon cheddar", 10)).containsExactly(4L, 1L);
+    }
+
+    @Test
+    void autocompleteTrataStopwordDigitadaPorUltimoComoPrefixo() {
+        assertThat(index.buscar("a", 10)).isEmpty();
+        assertThat(index.sugerir("a", 10)).containsExactly(2L);
+        assertThat(index.sugerir("Á", 10)).containsExactly(2L);
+        // Seguida de espaço, a stopword já é uma palavra completa e volta a ser ignorada
+        assertThat(index.sugerir("batata com ", 10)).containsExactly(4L);
+        assertThat(index.sugerir("a ", 10)).isEmpty();
+    }
+
+    @Test
+    void atualizaIncrementalmente() {
+        index.indexar(produto(2L, "Refrigerante Cola", "Lata de 350ml."));
+        assertThat(index.buscar("agua", 10)).isEmpty();
+        assertThat(index.buscar("cola", 10)).containsExactly(2L);
+
+        index.remover(1L);
+        assertThat(index.buscar("smash", 10)).isEmpty();
+        assertThat(index.buscar("bacon", 10)).containsExactly(4L);
+    }
+
+    private static ProdutoDTO produto(Long id, String nome, String descricao) {
+        ProdutoDTO dto = new ProdutoDTO();
+        dto.setId(id);
+        dto.setNome(nome);
+        dto.setDescricao(descricao);
+        dto.setDisponibilidade(true);
+        return dto;
+    }
+}
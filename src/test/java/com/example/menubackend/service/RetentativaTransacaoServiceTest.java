@@ -0,0 +1,74 @@
+package com.example.menubackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class RetentativaTransacaoServiceTest {
+
+    private RetentativaTransacaoService service;
+    private AtomicInteger tentativas;
+
+    @BeforeEach
+    void setUp() {
+        service = new RetentativaTransacaoService(mock(PlatformTransactionManager.class), 3);
+        tentativas = new AtomicInteger();
+    }
+
+    @Test
+    void repeteChaveUnicaDuplicada() {
+        String resultado = service.executar(() -> {
+            if (tentativas.incrementAndGet() == 1) {
+                throw violacao("Duplicate entry '7-3' for key 'uk_item_carrinho'", 1062);
+            }
+            return "ok";
+        });
+
+        assertThat(resultado).isEqualTo("ok");
+        assertThat(tentativas).hasValue(2);
+    }
+
+    @Test
+    void repeteConflitosDeConcorrenciaAteOLimite() {
+        assertThatThrownBy(() -> service.executar(() -> {
+            tentativas.incrementAndGet();
+            throw new OptimisticLockingFailureException("versão desatualizada");
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("em conflito");
+        assertThat(tentativas).hasValue(3);
+
+        tentativas.set(0);
+        assertThatThrownBy(() -> service.executar(() -> {
+            tentativas.incrementAndGet();
+            throw new DuplicateKeyException("chave duplicada");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(tentativas).hasValue(3);
+    }
+
+    @Test
+    void naoRepeteOutrasViolacoesDeIntegridade() {
+        // Chave estrangeira (produto excluído) e NOT NULL: repetir não muda o resultado
+        for (int codigo : new int[]{1452, 1048}) {
+            tentativas.set(0);
+            assertThatThrownBy(() -> service.executar(() -> {
+                tentativas.incrementAndGet();
+                throw violacao("violação " + codigo, codigo);
+            })).isInstanceOf(DataIntegrityViolationException.class);
+            assertThat(tentativas).hasValue(1);
+        }
+    }
+
+    private static DataIntegrityViolationException violacao(String mensagem, int codigo) {
+        return new DataIntegrityViolationException(mensagem,
+                new SQLIntegrityConstraintViolationException(mensagem, "23000", codigo));
+    }
+}